@@ -5,6 +5,7 @@ plugins {
     id("java")
     id("org.jetbrains.kotlin.jvm") version "1.9.25"
     id("org.jetbrains.intellij.platform") version "2.3.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "optimist"
@@ -20,9 +21,14 @@ repositories {
 // Configure Gradle IntelliJ Plugin
 // Read more: https://plugins.jetbrains.com/docs/intellij/tools-intellij-platform-gradle-plugin.html
 dependencies {
+    testImplementation("junit:junit:4.13.2")
+    // The platform's test framework refers to opentest4j's assertion errors
+    testImplementation("org.opentest4j:opentest4j:1.3.0")
+
     intellijPlatform {
         create("IC", "2024.2.5")
         testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Platform)
+        testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Plugin.Java)
 
         // Add necessary plugin dependencies for compilation
         bundledPlugin("com.intellij.java")
@@ -65,7 +71,35 @@ intellijPlatform {
     }
 }
 
+// JMH benchmarks in src/jmh run against the same IDE and test framework classpath as the tests,
+// so the PSI-based benchmarks can use a light IntelliJ test fixture.
+configurations {
+    named("jmhCompileOnly") { extendsFrom(configurations.compileOnly.get()) }
+    named("jmhImplementation") { extendsFrom(configurations.testImplementation.get()) }
+    named("jmhRuntimeOnly") {
+        extendsFrom(configurations.compileOnly.get(), configurations.testRuntimeOnly.get())
+    }
+}
+
+jmh {
+    jmhVersion = "1.37"
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    // One JSON file per plugin version, so results can be compared between releases
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results-${project.version}.json")
+    humanOutputFile = layout.buildDirectory.file("reports/jmh/human-${project.version}.txt")
+    // Benchmarks can be narrowed down with -Pjmh.includes=ConfigParsing
+    providers.gradleProperty("jmh.includes").orNull?.let { includes = listOf(it) }
+    jvmArgsAppend = provider { tasks.test.get().allJvmArgs }
+}
+
 tasks {
+    named("jmh") {
+        dependsOn("prepareTestSandbox")
+    }
+
     // Set the JVM compatibility versions
     withType<JavaCompile> {
         sourceCompatibility = "21"
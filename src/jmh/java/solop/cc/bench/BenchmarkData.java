@@ -0,0 +1,66 @@
+package solop.cc.bench;
+
+/**
+ * Generates the synthetic configs and Java sources the benchmarks run on.
+ */
+final class BenchmarkData {
+  static final int FILES_PER_CONFIG = 500;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * A rename config with {@code operations} operations spread over {@link #FILES_PER_CONFIG} files
+   */
+  static String config(int operations) {
+    StringBuilder json = new StringBuilder(operations * 110);
+    json.append("{\n  \"basePath\": \"src/main/java\",\n  \"operations\": [\n");
+    for (int i = 0; i < operations; i++) {
+      if (i > 0) json.append(",\n");
+      json.append("    {\"filePath\": \"com/example/generated/Generated").append(i % FILES_PER_CONFIG)
+          .append(".java\", \"line\": ").append(i / FILES_PER_CONFIG + 3)
+          .append(", \"column\": 17, \"newName\": \"renamedSymbol").append(i).append("\"}");
+    }
+    json.append("\n  ]\n}\n");
+    return json.toString();
+  }
+
+  /**
+   * A Java class of roughly {@code lines} lines with fields, methods, parameters and locals
+   */
+  static String javaClass(String className, int lines) {
+    StringBuilder source = new StringBuilder(lines * 40);
+    source.append("package com.example.generated;\n\npublic class ").append(className).append(" {\n");
+    int written = 3;
+    for (int i = 0; written < lines - 1; i++) {
+      source.append("  private int field").append(i).append(";\n");
+      source.append("  public int method").append(i).append("(int param").append(i).append(") {\n");
+      source.append("    int local").append(i).append(" = param").append(i).append(" + field").append(i).append(";\n");
+      source.append("    return local").append(i).append(";\n");
+      source.append("  }\n");
+      written += 5;
+    }
+    source.append("}\n");
+    return source.toString();
+  }
+
+  /**
+   * A Java class with {@code fields} fields, each declared on line {@code 3 + i} at column
+   * {@link #FIELD_COLUMN} and read once in a method below the declarations
+   */
+  static String classWithFields(String className, int fields) {
+    StringBuilder source = new StringBuilder(fields * 60);
+    source.append("package com.example.generated;\n\npublic class ").append(className).append(" {\n");
+    for (int i = 0; i < fields; i++) {
+      source.append("  private int field").append(i).append(";\n");
+    }
+    source.append("  public int sum() {\n    int sum = 0;\n");
+    for (int i = 0; i < fields; i++) {
+      source.append("    sum += field").append(i).append(";\n");
+    }
+    source.append("    return sum;\n  }\n}\n");
+    return source.toString();
+  }
+
+  static final int FIELD_COLUMN = "  private int ".length();
+}
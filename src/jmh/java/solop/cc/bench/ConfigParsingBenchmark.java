@@ -0,0 +1,62 @@
+package solop.cc.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import solop.cc.model.IncrementalConfigValidator;
+import solop.cc.model.RenameConfig;
+import solop.cc.model.RenameConfigReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and validation of rename configs from 1k to 1M operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConfigParsingBenchmark {
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int operations;
+
+  private String config;
+  private String editedConfig;
+  private IncrementalConfigValidator validator;
+
+  @Setup
+  public void setUp() {
+    config = BenchmarkData.config(operations);
+    // Change one new name in the middle of the config
+    int middle = config.indexOf("renamedSymbol" + operations / 2 + "\"");
+    editedConfig = config.substring(0, middle) + "edited" + config.substring(middle);
+    validator = new IncrementalConfigValidator();
+  }
+
+  @Benchmark
+  public void streamingScan(Blackhole blackhole) throws IOException {
+    blackhole.consume(RenameConfigReader.scan(new StringReader(config)));
+  }
+
+  @Benchmark
+  public void readIntoStore(Blackhole blackhole) throws IOException {
+    RenameConfig loaded = RenameConfigReader.readConfig(new StringReader(config));
+    blackhole.consume(loaded.getOperations().size());
+  }
+
+  /**
+   * Re-validation of the dialog text after editing a single operation
+   */
+  @Benchmark
+  public void incrementalValidation(Blackhole blackhole) {
+    blackhole.consume(validator.validate(config, () -> false));
+    blackhole.consume(validator.validate(editedConfig, () -> false));
+  }
+}
@@ -0,0 +1,35 @@
+package solop.cc.bench;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.JavaCodeInsightTestFixture;
+import com.intellij.testFramework.fixtures.JavaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.intellij.testFramework.fixtures.TestFixtureBuilder;
+
+/**
+ * A light Java project fixture for benchmarks, set up and torn down on the EDT like in tests.
+ */
+final class LightFixture {
+  private final JavaCodeInsightTestFixture fixture;
+
+  LightFixture() {
+    TestFixtureBuilder<IdeaProjectTestFixture> builder = IdeaTestFixtureFactory.getFixtureFactory()
+        .createLightFixtureBuilder(LightJavaCodeInsightFixtureTestCase.JAVA_21, "batch-renamer-bench");
+    fixture = JavaTestFixtureFactory.getFixtureFactory().createCodeInsightFixture(builder.getFixture());
+    EdtTestUtil.runInEdtAndWait(fixture::setUp);
+  }
+
+  /**
+   * Adds a file under the source root, which is also the project dir of a light project
+   */
+  PsiFile addFile(String relativePath, String text) {
+    return EdtTestUtil.runInEdtAndGet(() -> fixture.addFileToProject(relativePath, text));
+  }
+
+  void tearDown() {
+    EdtTestUtil.runInEdtAndWait(fixture::tearDown);
+  }
+}
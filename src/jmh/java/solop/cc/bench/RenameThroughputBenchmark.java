@@ -0,0 +1,91 @@
+package solop.cc.bench;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.EdtTestUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import solop.cc.batch.BatchRenameResult;
+import solop.cc.batch.BatchRenameRunner;
+import solop.cc.model.RenameConfig;
+import solop.cc.model.RenameConfig.RenameOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end batch rename throughput: each invocation renames every field of a freshly
+ * reset file, so the score is batches per second and the {@code renames} counter is
+ * operations per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RenameThroughputBenchmark {
+  private static final String FILE_PATH = "com/example/generated/Fields.java";
+
+  @Param({"10", "100", "1000"})
+  public int operations;
+
+  private LightFixture fixture;
+  private PsiFile psiFile;
+  private String source;
+  private RenameConfig config;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+    public long renames;
+    public long failures;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    fixture = new LightFixture();
+    source = BenchmarkData.classWithFields("Fields", operations);
+    psiFile = fixture.addFile(FILE_PATH, source);
+
+    // Paths are relative to the light project's source root, which is also its project dir
+    List<RenameOperation> renames = new ArrayList<>(operations);
+    for (int i = 0; i < operations; i++) {
+      renames.add(new RenameOperation(FILE_PATH, 3 + i, BenchmarkData.FIELD_COLUMN, "renamedField" + i));
+    }
+    config = new RenameConfig(null, renames);
+  }
+
+  @Setup(Level.Invocation)
+  public void resetFile() {
+    EdtTestUtil.runInEdtAndWait(() -> WriteCommandAction.runWriteCommandAction(psiFile.getProject(), () -> {
+      PsiDocumentManager documents = PsiDocumentManager.getInstance(psiFile.getProject());
+      Document document = documents.getDocument(psiFile);
+      document.setText(source);
+      documents.commitDocument(document);
+    }));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    fixture.tearDown();
+  }
+
+  @Benchmark
+  public BatchRenameResult renameAll(Counters counters) {
+    BatchRenameResult result = BatchRenameRunner.run(psiFile.getProject(), config, new EmptyProgressIndicator());
+    counters.renames += result.getSucceeded();
+    counters.failures += result.getFailed();
+    return result;
+  }
+}
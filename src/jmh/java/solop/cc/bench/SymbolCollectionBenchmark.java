@@ -0,0 +1,52 @@
+package solop.cc.bench;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import solop.cc.FileSymbolsCollector;
+import solop.cc.ui.RenameSymbolsDialog.SymbolRenameInfo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Symbol collection for the file rename dialog on Java files from 100 to 50k lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SymbolCollectionBenchmark {
+  @Param({"100", "1000", "10000", "50000"})
+  public int lines;
+
+  private LightFixture fixture;
+  private PsiFile psiFile;
+  private Document document;
+
+  @Setup
+  public void setUp() {
+    fixture = new LightFixture();
+    psiFile = fixture.addFile("com/example/generated/Symbols.java", BenchmarkData.javaClass("Symbols", lines));
+    document = ReadAction.compute(() -> PsiDocumentManager.getInstance(psiFile.getProject()).getDocument(psiFile));
+  }
+
+  @TearDown
+  public void tearDown() {
+    fixture.tearDown();
+  }
+
+  @Benchmark
+  public List<SymbolRenameInfo> collectSymbols() {
+    return ReadAction.compute(() -> FileSymbolsCollector.collectSymbols(psiFile, document));
+  }
+}
@@ -0,0 +1,177 @@
+package solop.cc;
+
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ex.ApplicationEx;
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import org.jetbrains.annotations.NotNull;
+import solop.cc.batch.BatchRenameOutcomeLog;
+import solop.cc.batch.BatchRenamePreviewResult;
+import solop.cc.batch.BatchRenameReport;
+import solop.cc.batch.BatchRenameResult;
+import solop.cc.batch.BatchRenameRunner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Runs a JSON batch rename without an IDE window.
+ * <p>
+ * Usage: {@code idea batchRename [--dry-run] <project> <config.json> [<report.json>]}. The project is
+ * opened headless, indexed, renamed with the same engine as the batch rename action, saved,
+ * and a JSON report is written next to the config unless a report path is given. The run's
+ * per-phase timings are written next to the config as {@code <config.json>.metrics.json}, and
+ * the outcome of every operation as {@code <config.json>.outcomes.jsonl}. The
+ * process exits with 0 if every operation succeeded, 1 if some failed and 2 if the run
+ * could not be performed at all. If an earlier run of the same config was interrupted, the
+ * run continues after the last checkpoint.
+ * </p>
+ * <p>
+ * With {@code --dry-run} nothing is renamed; the report lists the files and usages the run
+ * would change and any conflicts, and the process exits with 1 if there are conflicts or errors.
+ * </p>
+ */
+public class BatchRenameStarter implements ApplicationStarter {
+  private static final int EXIT_SUCCESS = 0;
+  private static final int EXIT_PARTIAL = 1;
+  private static final int EXIT_FAILURE = 2;
+  private static final String DRY_RUN = "--dry-run";
+
+  @Override
+  public boolean isHeadless() {
+    return true;
+  }
+
+  @Override
+  public void main(@NotNull List<String> args) {
+    // The first argument is the command name itself
+    boolean dryRun = args.size() > 1 && DRY_RUN.equals(args.get(1));
+    List<String> paths = args.subList(dryRun ? 2 : 1, args.size());
+    if (paths.size() < 2 || paths.size() > 3) {
+      System.err.println("Usage: batchRename [" + DRY_RUN + "] <project> <config.json> [<report.json>]");
+      exit(EXIT_FAILURE);
+      return;
+    }
+
+    Path projectPath = Path.of(paths.get(0)).toAbsolutePath().normalize();
+    Path configPath = Path.of(paths.get(1)).toAbsolutePath().normalize();
+    Path reportPath = paths.size() == 3
+        ? Path.of(paths.get(2)).toAbsolutePath().normalize()
+        : configPath.resolveSibling(configPath.getFileName() + (dryRun ? ".preview.json" : ".report.json"));
+
+    // Renames are applied via write commands on the EDT, so the run itself must not block it
+    ApplicationManager.getApplication().executeOnPooledThread(() ->
+        exit(run(projectPath, configPath, reportPath, dryRun)));
+  }
+
+  /**
+   * Shuts the application down like closing the IDE would, so disposers run and the indexes,
+   * the VFS and open logs are flushed before the process exits with the code
+   */
+  private static void exit(int exitCode) {
+    ApplicationManager.getApplication().invokeLater(() -> ApplicationManagerEx.getApplicationEx()
+        .exit(ApplicationEx.FORCE_EXIT | ApplicationEx.EXIT_CONFIRMED, exitCode), ModalityState.nonModal());
+  }
+
+  private static int run(Path projectPath, Path configPath, Path reportPath, boolean dryRun) {
+    Project project = null;
+    try {
+      if (!Files.isRegularFile(configPath)) {
+        return fail("Config file not found: " + configPath, reportPath);
+      }
+
+      project = ProjectUtil.openOrImport(projectPath, null, false);
+      if (project == null) {
+        return fail("Cannot open project: " + projectPath, reportPath);
+      }
+
+      log("Waiting for indexing to finish...");
+      DumbService.getInstance(project).waitForSmartMode();
+
+      Project openProject = project;
+      ProgressIndicator indicator = new EmptyProgressIndicator();
+      if (dryRun) {
+        return preview(openProject, configPath, reportPath, indicator);
+      }
+
+      log("Renaming symbols from " + configPath);
+      BatchRenameResult result;
+      try (BatchRenameOutcomeLog outcomeLog = BatchRenameOutcomeLog.create(
+          configPath.resolveSibling(configPath.getFileName() + ".outcomes.jsonl"))) {
+        result = ProgressManager.getInstance().runProcess(() -> {
+          try {
+            return BatchRenameRunner.run(openProject,
+                () -> Files.newBufferedReader(configPath, StandardCharsets.UTF_8), indicator, (completed, total) -> {
+                  // Re-running the same command continues an interrupted run
+                  log("Resuming after " + completed + " of " + total + " operations completed by an earlier run");
+                  return true;
+                }, outcomeLog);
+          } catch (IOException ex) {
+            throw new IllegalArgumentException("Error reading rename configuration: " + ex.getMessage(), ex);
+          }
+        }, indicator);
+      }
+
+      ApplicationManager.getApplication().invokeAndWait(() -> FileDocumentManager.getInstance().saveAllDocuments());
+
+      BatchRenameReport.write(result, reportPath);
+      Path metricsPath = configPath.resolveSibling(configPath.getFileName() + ".metrics.json");
+      BatchRenameReport.writeMetrics(result.getMetrics(), metricsPath);
+      log(result.getSummary());
+      log("Report written to " + reportPath + ", metrics to " + metricsPath);
+      return result.getFailed() == 0 ? EXIT_SUCCESS : EXIT_PARTIAL;
+    } catch (Exception ex) {
+      return fail(ex.getMessage(), reportPath);
+    } finally {
+      if (project != null) {
+        Project openProject = project;
+        ApplicationManager.getApplication().invokeAndWait(() ->
+            ProjectManager.getInstance().closeAndDispose(openProject));
+      }
+    }
+  }
+
+  private static int preview(Project project, Path configPath, Path reportPath, ProgressIndicator indicator)
+      throws IOException {
+    log("Previewing renames from " + configPath);
+    BatchRenamePreviewResult result = ProgressManager.getInstance().runProcess(() -> {
+      try {
+        return BatchRenameRunner.preview(project,
+            () -> Files.newBufferedReader(configPath, StandardCharsets.UTF_8), indicator);
+      } catch (IOException ex) {
+        throw new IllegalArgumentException("Error reading rename configuration: " + ex.getMessage(), ex);
+      }
+    }, indicator);
+
+    BatchRenameReport.writePreview(result, reportPath);
+    log(result.getSummary());
+    log("Report written to " + reportPath);
+    return result.isClean() ? EXIT_SUCCESS : EXIT_PARTIAL;
+  }
+
+  private static int fail(String message, Path reportPath) {
+    System.err.println("Batch rename failed: " + message);
+    try {
+      BatchRenameReport.writeFailure(message, reportPath);
+    } catch (IOException ex) {
+      System.err.println("Cannot write report to " + reportPath + ": " + ex.getMessage());
+    }
+    return EXIT_FAILURE;
+  }
+
+  private static void log(String message) {
+    System.out.println(message);
+  }
+}
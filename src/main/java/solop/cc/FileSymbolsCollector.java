@@ -1,90 +1,354 @@
 package solop.cc;
 
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiNameIdentifierOwner;
 import com.intellij.psi.PsiNamedElement;
-import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.psi.impl.source.tree.CompositeElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiUtilCore;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.Nullable;
 import solop.cc.ui.RenameSymbolsDialog.SymbolRenameInfo;
 
-import java.util.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class FileSymbolsCollector {
+    private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+        "Batch Renamer Symbol Collector", Runtime.getRuntime().availableProcessors());
+
+    // Subtrees at least this long keep their own symbol list, so edits elsewhere do not re-walk them
+    private static final int MIN_CACHED_SUBTREE_LENGTH = 1024;
+    // The last walk of a file, outlives its cached value so the next walk can reuse its subtrees
+    private static final Key<Walk> LAST_WALK = Key.create("batch.renamer.last.walk");
+
+    /**
+     * A collected symbol; offsets are absolute in file results and relative in subtree results
+     */
+    private record Symbol(PsiNameIdentifierOwner element, int offset) {
+    }
+
+    /**
+     * Symbols of one subtree, valid while the subtree's modification count is unchanged
+     */
+    private record SubtreeSymbols(int modificationCount, Symbol[] symbols) {
+    }
+
+    /**
+     * Symbols of a whole file, with those of its large subtrees by node
+     */
+    private record Walk(Symbol[] symbols, Map<CompositeElement, SubtreeSymbols> subtrees) {
+    }
 
     /**
      * Collects all named elements (symbols) from a PSI file
+     * <p>
+     * The symbols of a file are cached until the file's PSI changes. After an edit only the
+     * subtrees that were modified are walked again; the symbols of large unchanged subtrees
+     * are reused with their offsets shifted to the subtree's new position.
+     * </p>
      *
      * @param psiFile The PSI file to analyze
      * @param document The document for the file (used to find offsets)
      * @return List of SymbolRenameInfo objects representing each named element
      */
     public static List<SymbolRenameInfo> collectSymbols(PsiFile psiFile, Document document) {
-        List<SymbolRenameInfo> result = new ArrayList<>();
-        Set<PsiNamedElement> processedElements = new HashSet<>();
+        Symbol[] symbols = getSymbols(psiFile);
 
-        // Get all named elements
-        Collection<PsiNamedElement> namedElements = PsiTreeUtil.findChildrenOfType(psiFile, PsiNamedElement.class);
+        // The cached symbols are shared, the rename infos carry per-dialog state
+        List<SymbolRenameInfo> result = new ArrayList<>(symbols.length);
+        for (Symbol symbol : symbols) {
+            result.add(new SymbolRenameInfo(symbol.element(), symbol.offset()));
+        }
+        return result;
+    }
 
-        // Add relevant named elements to the result
-        for (PsiNamedElement element : namedElements) {
-            // Skip duplicates
-            if (processedElements.contains(element)) {
-                continue;
-            }
+    /**
+     * Collects the symbols of a PSI file and hands them over in batches of {@code batchSize},
+     * so a dialog can show the first rows while the rest are still being prepared. Must be
+     * called inside a read action.
+     */
+    public static void collectSymbols(PsiFile psiFile, int batchSize, Consumer<List<SymbolRenameInfo>> batches) {
+        collectSymbols(psiFile, new BatchEmitter(batchSize, 0, batches));
+    }
 
-            // Get textual representation (for finding offset)
-            PsiElement nameIdentifier = null;
-            if (element instanceof PsiNameIdentifierOwner) {
-                nameIdentifier = ((PsiNameIdentifierOwner) element).getNameIdentifier();
+    /**
+     * Collects the symbols of a PSI file in a non-blocking read action, handing them over in
+     * batches, so writes are not held off for the whole collection and the dialog shows rows
+     * as they are handed over. If a write restarts the read action, the symbols already
+     * handed over are skipped. Must not be called inside a read action.
+     */
+    public static void collectSymbols(Project project, PsiFile psiFile, int batchSize,
+                                      Consumer<List<SymbolRenameInfo>> batches, ProgressIndicator indicator) {
+        int[] delivered = new int[1];
+        Consumer<List<SymbolRenameInfo>> counting = batch -> {
+            delivered[0] += batch.size();
+            batches.accept(batch);
+        };
+        ReadAction
+            .nonBlocking(() -> {
+                if (psiFile.isValid()) {
+                    collectSymbols(psiFile, new BatchEmitter(batchSize, delivered[0], counting));
+                }
+            })
+            .wrapProgress(indicator)
+            .expireWith(project)
+            .executeSynchronously();
+    }
+
+    private static void collectSymbols(PsiFile psiFile, BatchEmitter emitter) {
+        emitter.finish(getSymbols(psiFile));
+    }
+
+    /**
+     * The cached symbols of a file, walking it if it changed since
+     */
+    private static Symbol[] getSymbols(PsiFile psiFile) {
+        // The provider only walks; the walk is remembered for the next one out here
+        Walk walk = CachedValuesManager.getCachedValue(psiFile,
+            () -> CachedValueProvider.Result.create(walk(psiFile, psiFile.getUserData(LAST_WALK)), psiFile));
+        psiFile.putUserData(LAST_WALK, walk);
+        return walk.symbols();
+    }
+
+    /**
+     * Collects the symbols of many files in parallel, each file in a read action of its own,
+     * and hands them over in batches of {@code batchSize}, on the calling thread. Files are
+     * handed over in the order they are given, each with all its batches together, so the
+     * rows of one file stay next to each other; a file that is done early waits for the files
+     * before it. Must not be called inside a read action.
+     */
+    public static void collectSymbols(Project project, List<VirtualFile> files, int batchSize,
+                                      Consumer<List<SymbolRenameInfo>> batches, ProgressIndicator indicator) {
+        List<Future<List<List<SymbolRenameInfo>>>> futures = new ArrayList<>(files.size());
+        for (VirtualFile file : files) {
+            // Collected into a list first, as the read action is restarted if a write comes in
+            futures.add(EXECUTOR.submit(() -> ReadAction
+                .nonBlocking(() -> {
+                    List<List<SymbolRenameInfo>> collected = new ArrayList<>();
+                    PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+                    if (psiFile != null) {
+                        collectSymbols(psiFile, batchSize, collected::add);
+                    }
+                    return collected;
+                })
+                .wrapProgress(indicator)
+                .expireWith(project)
+                .executeSynchronously()));
+        }
+
+        try {
+            for (Future<List<List<SymbolRenameInfo>>> future : futures) {
+                ProgressIndicatorUtils.awaitWithCheckCanceled(future, indicator).forEach(batches);
             }
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * Walks the file for its symbols, in document order. Large subtrees that are unchanged
+     * since the previous walk are not walked again. Changes nothing, not even the previous walk.
+     */
+    private static Walk walk(PsiFile psiFile, @Nullable Walk previous) {
+        List<Symbol> result = new ArrayList<>();
+        Map<CompositeElement, SubtreeSymbols> subtrees = new IdentityHashMap<>();
+        // Large subtrees that are being walked, innermost last
+        Deque<SubtreeFrame> open = new ArrayDeque<>();
+
+        // A single walk over the tree visits every element exactly once, so no duplicate check is needed
+        psiFile.accept(new PsiRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitElement(PsiElement element) {
+                if (element != psiFile && element.getNode() instanceof CompositeElement node
+                        && node.getTextLength() >= MIN_CACHED_SUBTREE_LENGTH) {
+                    int start = node.getStartOffset();
+                    SubtreeSymbols cached = previous != null ? previous.subtrees().get(node) : null;
+                    if (cached != null && cached.modificationCount() == node.getModificationCount()) {
+                        for (Symbol symbol : cached.symbols()) {
+                            result.add(new Symbol(symbol.element(), start + symbol.offset()));
+                        }
+                        subtrees.put(node, cached);
+                        return; // Skip the unchanged subtree
+                    }
+                    open.addLast(new SubtreeFrame(element, node, start, result.size()));
+                }
 
-            // Skip if it has no name
-            String name = element.getName();
-            if (name == null || name.isEmpty()) {
-                continue;
+                if (element != psiFile && element instanceof PsiNameIdentifierOwner owner && isRenamableSymbol(owner)) {
+                    int offset = getSymbolOffset(owner);
+                    if (offset >= 0) {
+                        result.add(new Symbol(owner, offset));
+                    }
+                }
+                super.visitElement(element);
             }
 
-            // Skip if it's not a valid symbol type to rename
-            if (!isRenamableSymbol(element)) {
-                continue;
+            @Override
+            protected void elementFinished(PsiElement element) {
+                SubtreeFrame frame = open.peekLast();
+                if (frame != null && frame.element == element) {
+                    open.removeLast();
+                    subtrees.put(frame.node, frame.symbols(result));
+                }
             }
+        });
 
-            // Find the element's offset in the document
-            int offset = -1;
-            if (nameIdentifier != null) {
-                offset = nameIdentifier.getTextOffset();
-            } else if (element.getTextRange() != null) {
-                offset = element.getTextRange().getStartOffset();
+        return new Walk(result.toArray(new Symbol[0]), subtrees);
+    }
+
+    /**
+     * Hands over symbols in batches, skipping those handed over before
+     */
+    private static final class BatchEmitter {
+        private final int batchSize;
+        private final Consumer<List<SymbolRenameInfo>> batches;
+        // Symbols before this index were handed over already
+        private int emitted;
+
+        BatchEmitter(int batchSize, int skip, Consumer<List<SymbolRenameInfo>> batches) {
+            this.batchSize = batchSize;
+            this.emitted = skip;
+            this.batches = batches;
+        }
+
+        /**
+         * Hands over the symbols that were not handed over yet
+         */
+        void finish(Symbol[] symbols) {
+            List<Symbol> found = Arrays.asList(symbols);
+            while (emitted < found.size()) {
+                emit(found, Math.min(emitted + batchSize, found.size()));
             }
+        }
 
-            if (offset >= 0) {
-                result.add(new SymbolRenameInfo(element, offset));
-                processedElements.add(element);
+        private void emit(List<Symbol> found, int end) {
+            ProgressManager.checkCanceled();
+            List<SymbolRenameInfo> batch = new ArrayList<>(end - emitted);
+            for (int i = emitted; i < end; i++) {
+                batch.add(new SymbolRenameInfo(found.get(i).element(), found.get(i).offset()));
             }
+            emitted = end;
+            batches.accept(batch);
         }
+    }
 
-        return result;
+    /**
+     * A large subtree whose symbols are kept for the next walk once this walk leaves it
+     */
+    private static final class SubtreeFrame {
+        private final PsiElement element;
+        private final CompositeElement node;
+        private final int modificationCount;
+        private final int startOffset;
+        private final int firstSymbol;
+
+        SubtreeFrame(PsiElement element, CompositeElement node, int startOffset, int firstSymbol) {
+            this.element = element;
+            this.node = node;
+            this.modificationCount = node.getModificationCount();
+            this.startOffset = startOffset;
+            this.firstSymbol = firstSymbol;
+        }
+
+        SubtreeSymbols symbols(List<Symbol> result) {
+            Symbol[] symbols = new Symbol[result.size() - firstSymbol];
+            for (int i = 0; i < symbols.length; i++) {
+                Symbol symbol = result.get(firstSymbol + i);
+                symbols[i] = new Symbol(symbol.element(), symbol.offset() - startOffset);
+            }
+            return new SubtreeSymbols(modificationCount, symbols);
+        }
     }
 
     /**
      * Determines if an element can be renamed
      */
-    private static boolean isRenamableSymbol(PsiNamedElement element) {
-        // Check if element is a meaningful, renamable element
-        // This approach avoids direct dependencies on Java-specific PSI types
-        String elementType = PsiUtilCore.getElementType(element) != null ? 
-                          PsiUtilCore.getElementType(element).toString() : "";
-
-        // Include common renamable types based on their general characteristics
-        return (element instanceof PsiNameIdentifierOwner) && 
-               (elementType.contains("CLASS") || 
-                elementType.contains("METHOD") || 
-                elementType.contains("FIELD") || 
-                elementType.contains("VARIABLE") || 
-                elementType.contains("PARAMETER") ||
-                elementType.contains("IDENTIFIER"));
+    private static boolean isRenamableSymbol(PsiNameIdentifierOwner element) {
+        if (!RenamableTypes.contains(PsiUtilCore.getElementType(element))) {
+            return false;
+        }
+
+        // Skip if it has no name
+        String name = element.getName();
+        return name != null && !name.isEmpty();
+    }
+
+    /**
+     * Finds the offset of the element's name in the document, or -1 if it has none
+     */
+    private static int getSymbolOffset(PsiNamedElement element) {
+        PsiElement nameIdentifier = ((PsiNameIdentifierOwner) element).getNameIdentifier();
+        if (nameIdentifier != null) {
+            return nameIdentifier.getTextOffset();
+        }
+        return element.getTextRange() != null ? element.getTextRange().getStartOffset() : -1;
+    }
+
+    /**
+     * Lookup of renamable element types by {@link IElementType#getIndex()}.
+     * <p>
+     * Element types are matched by the general characteristics of their names, which avoids
+     * direct dependencies on language-specific PSI types. Each type's name is only inspected
+     * the first time the type is seen; after that the lookup is a single array read.
+     * </p>
+     */
+    private static final class RenamableTypes {
+        private static final byte UNKNOWN = 0;
+        private static final byte RENAMABLE = 1;
+        private static final byte NOT_RENAMABLE = 2;
+        private static final String[] KEYWORDS = {"CLASS", "METHOD", "FIELD", "VARIABLE", "PARAMETER", "IDENTIFIER"};
+
+        // Races between readers only cause a type to be classified twice, with the same result
+        private static volatile byte[] statuses = new byte[Math.max(IElementType.getAllocatedTypesCount(), 1024)];
+
+        static boolean contains(IElementType type) {
+            if (type == null) {
+                return false;
+            }
+
+            int index = type.getIndex();
+            byte[] known = statuses;
+            if (index < known.length && known[index] != UNKNOWN) {
+                return known[index] == RENAMABLE;
+            }
+
+            boolean renamable = matches(type.toString());
+            if (index >= known.length) {
+                known = Arrays.copyOf(known, Math.max(index + 1, known.length * 2));
+            }
+            known[index] = renamable ? RENAMABLE : NOT_RENAMABLE;
+            statuses = known;
+            return renamable;
+        }
+
+        private static boolean matches(String typeName) {
+            for (String keyword : KEYWORDS) {
+                if (typeName.contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
@@ -3,28 +3,39 @@ package solop.cc;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
-import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiNamedElement;
-import com.intellij.refactoring.rename.RenameProcessor;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
 import org.jetbrains.annotations.NotNull;
+import solop.cc.batch.BatchRenameOutcomeLog;
+import solop.cc.batch.BatchRenameResult;
+import solop.cc.batch.RenameWriteScheduler;
+import solop.cc.ui.BatchRenameToolWindowFactory;
 import solop.cc.ui.RenameSymbolsDialog;
 import solop.cc.ui.RenameSymbolsDialog.SymbolRenameInfo;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Action to rename symbols in the current file.
@@ -32,14 +43,26 @@ import java.util.List;
  * This action collects all symbols from the current file
  * and presents a dialog allowing the user to rename them.
  * </p>
+ * <p>
+ * With several files or a directory selected in the Project view, the symbols of all
+ * selected files are collected in parallel into one dialog, grouped by file, and renamed
+ * together in one batch.
+ * </p>
  */
 public class RenameFileSymbolsAction extends AnAction {
+    private static final int SYMBOL_BATCH_SIZE = 2000;
 
     @Override
     public void actionPerformed(AnActionEvent e) {
         Project project = e.getProject();
         if (project == null) return;
 
+        VirtualFile[] selection = getMultiFileSelection(e);
+        if (selection != null) {
+            renameSymbolsInFiles(project, selection);
+            return;
+        }
+
         // Get the file from either editor or project view
         PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
         Document document = null;
@@ -77,16 +100,31 @@ public class RenameFileSymbolsAction extends AnAction {
             return;
         }
 
-        // Collect all symbols from the current file
-        List<SymbolRenameInfo> symbols = FileSymbolsCollector.collectSymbols(psiFile, document);
+        // Symbols are cached per file until its PSI changes, so commit pending edits first
+        PsiDocumentManager.getInstance(project).commitDocument(document);
 
-        if (symbols.isEmpty()) {
-            Messages.showInfoMessage(project, "No renamable symbols found in the current file.", "No Symbols Found");
-            return;
-        }
+        // Show the rename dialog right away and stream the symbols into it
+        PsiFile file = psiFile;
+        RenameSymbolsDialog dialog = new RenameSymbolsDialog(project, (batches, indicator) ->
+            FileSymbolsCollector.collectSymbols(project, file, SYMBOL_BATCH_SIZE, batches, indicator));
+        renameSymbols(project, dialog);
+    }
+
+    private void renameSymbolsInFiles(Project project, VirtualFile[] selection) {
+        // Symbols are cached per file until its PSI changes, so commit pending edits first
+        PsiDocumentManager.getInstance(project).commitAllDocuments();
 
-        // Show the rename dialog
-        RenameSymbolsDialog dialog = new RenameSymbolsDialog(project, symbols);
+        RenameSymbolsDialog dialog = new RenameSymbolsDialog(project, (batches, indicator) -> {
+            List<VirtualFile> files = ReadAction.compute(() -> collectFiles(project, selection));
+            FileSymbolsCollector.collectSymbols(project, files, SYMBOL_BATCH_SIZE, batches, indicator);
+        }, true);
+        renameSymbols(project, dialog);
+    }
+
+    /**
+     * Shows the dialog and renames the symbols given new names in it in the background
+     */
+    private void renameSymbols(Project project, RenameSymbolsDialog dialog) {
         if (!dialog.showAndGet()) {
             return; // User cancelled
         }
@@ -111,61 +149,110 @@ public class RenameFileSymbolsAction extends AnAction {
      * Processes symbol rename operations collected from the dialog
      */
     private void processSymbolRenames(Project project, List<SymbolRenameInfo> symbolsToRename, ProgressIndicator indicator) {
-        List<String> results = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
+        // Only counts and a sample of failures are kept; every outcome goes to the log
+        String runId = BatchRenameOutcomeLog.newRunId();
+        BatchRenameOutcomeLog outcomeLog = BatchRenameOutcomeLog.createInLogDirectory(runId);
+        BatchRenameResult result = new BatchRenameResult();
+        result.setOutcomeLog(outcomeLog);
 
-        indicator.setIndeterminate(false);
+        indicator.setIndeterminate(true);
         indicator.setText("Processing symbol renames...");
 
         int totalRenames = symbolsToRename.size();
-        for (int i = 0; i < totalRenames; i++) {
-            SymbolRenameInfo symbol = symbolsToRename.get(i);
-            indicator.setText2("Renaming: " + symbol.getOriginalName() + " to " + symbol.getNewName());
-            indicator.setFraction((double) i / totalRenames);
+        indicator.setText2("Renaming " + totalRenames + " symbols");
+        result.addOperations(totalRenames);
 
-            try {
-                boolean success = renameSymbolElement(project, symbol.getElement(), symbol.getNewName());
-                if (success) {
-                    results.add("Successfully renamed '" + symbol.getOriginalName() + "' to '" + symbol.getNewName() + "'");
+        // Symbols edited away since the dialog closed cannot be pointed to any more
+        List<SymbolRenameInfo> renamable = new ArrayList<>(totalRenames);
+        List<SmartPsiElementPointer<PsiNamedElement>> targets = new ArrayList<>(totalRenames);
+        List<String> newNames = new ArrayList<>(totalRenames);
+        ReadAction.run(() -> {
+            SmartPointerManager pointers = SmartPointerManager.getInstance(project);
+            for (SymbolRenameInfo symbol : symbolsToRename) {
+                if (symbol.getElement().isValid()) {
+                    renamable.add(symbol);
+                    targets.add(pointers.createSmartPsiElementPointer(symbol.getElement()));
+                    newNames.add(symbol.getNewName());
                 } else {
-                    errors.add("Failed to rename '" + symbol.getOriginalName() + "'");
+                    result.addFailure(location(symbol), "target is no longer valid");
                 }
+            }
+        });
+
+        try {
+            // Usages are searched for in the background and written in short slices, undone in one step.
+            // Outcomes are recorded per slice, so a failing slice does not discard those written before it
+            int[] reported = new int[1];
+            try {
+                new RenameWriteScheduler(project, "Rename Symbols in File").rename(targets, newNames, indicator,
+                        (errors, done) -> {
+                            for (int i = reported[0]; i < done; i++) {
+                                SymbolRenameInfo symbol = renamable.get(i);
+                                if (errors[i] == null) {
+                                    result.addSuccess(location(symbol), symbol.getNewName());
+                                } else {
+                                    result.addFailure(location(symbol), errors[i]);
+                                }
+                            }
+                            reported[0] = done;
+                        });
+            } catch (ProcessCanceledException ex) {
+                throw ex;
             } catch (Exception ex) {
-                errors.add("Error renaming '" + symbol.getOriginalName() + "': " + ex.getMessage());
+                for (int i = reported[0]; i < renamable.size(); i++) {
+                    result.addFailure(location(renamable.get(i)), "error renaming symbols: " + ex.getMessage());
+                }
             }
+        } finally {
+            BatchRenameOutcomeLog.closeQuietly(outcomeLog);
         }
 
         com.intellij.openapi.application.ApplicationManager.getApplication().invokeLater(() -> {
-            StringBuilder message = new StringBuilder();
-            message.append("Completed ").append(results.size()).append(" out of ").append(totalRenames).append(" renames.\n\n");
+            BatchRenameToolWindowFactory.showRun(project, "Rename in File " + runId, result);
+            Messages.showInfoMessage(project, result.getSummary(), "Rename Operations Complete");
+        }, project.getDisposed());
+    }
 
-            if (!errors.isEmpty()) {
-                message.append("Errors (").append(errors.size()).append("):\n");
-                for (String error : errors) {
-                    message.append("- ").append(error).append("\n");
-                }
-            }
+    private static String location(SymbolRenameInfo symbol) {
+        VirtualFile file = symbol.getFile();
+        return "'" + symbol.getOriginalName() + "'" + (file != null ? " in " + file.getName() : "");
+    }
 
-            Messages.showInfoMessage(project, message.toString(), "Rename Operations Complete");
-        });
+    /**
+     * Returns the Project view selection if it is more than a single file, otherwise null
+     */
+    private static VirtualFile[] getMultiFileSelection(AnActionEvent e) {
+        VirtualFile[] selection = e.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+        if (selection == null || selection.length == 0) return null;
+        if (selection.length > 1) return selection;
+        return selection[0].isDirectory() ? selection : null;
     }
 
     /**
-     * Renames a specific PsiNamedElement
+     * Expands the selection into the text files it contains, skipping excluded directories,
+     * sorted by path so the dialog lists the files in a stable order
      */
-    private boolean renameSymbolElement(Project project, PsiNamedElement element, String newName) {
-        boolean[] success = new boolean[1];
-        WriteCommandAction.runWriteCommandAction(project, () -> {
-            try {
-                RenameProcessor processor = new RenameProcessor(project, element, newName, false, false);
-                processor.run();
-                success[0] = true;
-            } catch (Exception e) {
-                success[0] = false;
+    private static List<VirtualFile> collectFiles(Project project, VirtualFile[] selection) {
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        Set<VirtualFile> files = new LinkedHashSet<>();
+        for (VirtualFile root : selection) {
+            if (!root.isValid()) continue;
+            if (!root.isDirectory()) {
+                files.add(root);
+                continue;
             }
-        });
+            fileIndex.iterateContentUnderDirectory(root, file -> {
+                ProgressManager.checkCanceled();
+                if (!file.isDirectory() && !file.getFileType().isBinary()) {
+                    files.add(file);
+                }
+                return true;
+            });
+        }
 
-        return success[0];
+        List<VirtualFile> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(VirtualFile::getPath));
+        return sorted;
     }
 
     @Override
@@ -176,6 +263,13 @@ public class RenameFileSymbolsAction extends AnAction {
             return;
         }
 
+        if (getMultiFileSelection(e) != null) {
+            e.getPresentation().setText("Rename Symbols in Files");
+            e.getPresentation().setEnabled(true);
+            return;
+        }
+        e.getPresentation().setText("Rename Symbols in File");
+
         // Check if we have a file either from the editor or from the project view
         PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
         VirtualFile virtualFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
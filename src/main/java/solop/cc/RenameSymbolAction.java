@@ -1,41 +1,47 @@
 package solop.cc;
 
-import com.intellij.openapi.project.ProjectUtil;
+import solop.cc.batch.BatchRenameOutcomeLog;
+import solop.cc.batch.BatchRenamePreviewResult;
+import solop.cc.batch.BatchRenameReport;
+import solop.cc.batch.BatchRenameResult;
+import solop.cc.batch.BatchRenameRunner;
 import solop.cc.model.RenameConfig;
+import solop.cc.ui.BatchRenameToolWindowFactory;
 import solop.cc.ui.JsonInputDialog;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.command.WriteCommandAction;
-import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
-import com.intellij.psi.PsiNamedElement;
-import com.intellij.psi.util.PsiTreeUtil;
-import com.intellij.refactoring.rename.RenameProcessor;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Action to rename symbols across the project using JSON configuration.
  * <p>
  * This action displays a dialog for entering JSON configuration which specifies
- * rename operations by file path, line, and column coordinates.
+ * rename operations by file path, line, and column coordinates, or for choosing a
+ * configuration file. The operations run in a background task.
+ * </p>
+ * <p>
+ * As a dry run, the operations are only resolved and their usages and conflicts counted,
+ * without renaming anything. Otherwise they are renamed: a configuration file is streamed
+ * from disk in chunks, entered JSON is renamed from memory. Either way, if an earlier run
+ * of the same configuration was interrupted, the user is asked whether to resume it from
+ * its last checkpoint. The outcome of every operation is shown in the tool window.
  * </p>
  */
 public class RenameSymbolAction extends AnAction {
+  private static final Logger LOG = Logger.getInstance(RenameSymbolAction.class);
+
   @Override
   public void actionPerformed(AnActionEvent e) {
     Project project = e.getProject();
@@ -51,12 +57,44 @@ public class RenameSymbolAction extends AnAction {
       return; // User cancelled
     }
 
+    boolean dryRun = dialog.isDryRun();
+    VirtualFile configFile = dialog.getConfigFile();
+    if (configFile != null && dryRun) {
+      ProgressManager.getInstance().run(new Task.Backgroundable(project, "Previewing renames", true) {
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+          previewRenameFile(project, configFile, indicator);
+        }
+      });
+      return;
+    }
+    if (configFile != null) {
+      // Large manifests are streamed from disk in chunks instead of being loaded at once
+      ProgressManager.getInstance().run(new Task.Backgroundable(project, "Renaming symbols", true) {
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+          processRenameFile(project, configFile, indicator);
+        }
+      });
+      return;
+    }
+
     RenameConfig config = dialog.getConfig();
     if (config == null || config.getOperations() == null || config.getOperations().isEmpty()) {
       Messages.showErrorDialog(project, "No valid rename operations found", "Error");
       return;
     }
 
+    if (dryRun) {
+      ProgressManager.getInstance().run(new Task.Backgroundable(project, "Previewing renames", true) {
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+          previewRenameOperations(project, config, indicator);
+        }
+      });
+      return;
+    }
+
     ProgressManager.getInstance().run(new Task.Backgroundable(project, "Renaming symbols", true) {
       @Override
       public void run(@NotNull ProgressIndicator indicator) {
@@ -65,132 +103,104 @@ public class RenameSymbolAction extends AnAction {
     });
   }
 
-  private void processRenameOperations(Project project, RenameConfig config, ProgressIndicator indicator) {
-    List<String> results = new ArrayList<>();
-    List<String> errors = new ArrayList<>();
-
-    String basePath = config.getBasePath();
-    VirtualFile baseDir = null;
-
-    if (basePath != null && !basePath.isEmpty()) {
-      if (new File(basePath).isAbsolute()) {
-        baseDir = LocalFileSystem.getInstance().findFileByIoFile(new File(basePath));
-      } else {
-        VirtualFile projectDir = ProjectUtil.guessProjectDir(project);
-        if (projectDir != null) {
-          baseDir = projectDir.findFileByRelativePath(basePath);
-        }
-      }
-
-      if (baseDir == null || !baseDir.isDirectory()) {
-        ApplicationManager.getApplication().invokeLater(() ->
-            Messages.showErrorDialog(project, "Base path not found or not a directory: " + basePath, "Error"));
-        return;
-      }
+  private void previewRenameOperations(Project project, RenameConfig config, ProgressIndicator indicator) {
+    try {
+      showPreview(project, BatchRenameRunner.preview(project, config, indicator));
+    } catch (IllegalArgumentException ex) {
+      showError(project, ex.getMessage());
     }
+  }
 
-    indicator.setIndeterminate(false);
-    indicator.setText("Processing rename operations...");
-
-    int totalOps = config.getOperations().size();
-    for (int i = 0; i < totalOps; i++) {
-      RenameConfig.RenameOperation op = config.getOperations().get(i);
-      indicator.setText2("Processing: " + op);
-      indicator.setFraction((double) i / totalOps);
-
-      try {
-        String filePath = op.getFilePath();
-
-        if (baseDir != null && !new File(filePath).isAbsolute()) {
-          VirtualFile targetFile = baseDir.findFileByRelativePath(filePath);
-          if (targetFile != null) {
-            filePath = targetFile.getPath();
-          }
-        }
-
-        boolean success = renameSymbol(project, filePath, op.getLine(), op.getColumn(), op.getNewName());
-        if (success) {
-          results.add("Successfully renamed at " + op.getFilePath() + ":" + op.getLine() + "," + op.getColumn() + " to '" + op.getNewName() + "'");
-        } else {
-          errors.add("Failed to rename at " + op.getFilePath() + ":" + op.getLine() + "," + op.getColumn());
-        }
-      } catch (Exception ex) {
-        errors.add("Error processing operation at " + op.getFilePath() + ": " + ex.getMessage());
-      }
+  private void previewRenameFile(Project project, VirtualFile configFile, ProgressIndicator indicator) {
+    try {
+      showPreview(project, BatchRenameRunner.preview(project, () -> JsonInputDialog.openReader(configFile), indicator));
+    } catch (IOException ex) {
+      showError(project, "Error reading rename configuration: " + ex.getMessage());
+    } catch (IllegalArgumentException ex) {
+      showError(project, ex.getMessage());
     }
+  }
 
-    ApplicationManager.getApplication().invokeLater(() -> {
-      StringBuilder message = new StringBuilder();
-      message.append("Completed ").append(results.size()).append(" out of ").append(totalOps).append(" operations.\n\n");
-
-      if (!errors.isEmpty()) {
-        message.append("Errors (").append(errors.size()).append("):\n");
-        for (String error : errors) {
-          message.append("- ").append(error).append("\n");
-        }
-      }
-
-      Messages.showInfoMessage(project, message.toString(), "Rename Operations Complete");
-    });
+  private void processRenameOperations(Project project, RenameConfig config, ProgressIndicator indicator) {
+    String runId = BatchRenameOutcomeLog.newRunId();
+    BatchRenameOutcomeLog outcomeLog = BatchRenameOutcomeLog.createInLogDirectory(runId);
+    BatchRenameResult result;
+    try {
+      result = BatchRenameRunner.run(project, config, indicator, askToResume(project), outcomeLog);
+    } catch (IllegalArgumentException ex) {
+      showError(project, ex.getMessage());
+      return;
+    } finally {
+      // The outcome view reads the log, so it has to be flushed first
+      BatchRenameOutcomeLog.closeQuietly(outcomeLog);
+    }
+    showSummary(project, result, runId);
   }
 
+  private void processRenameFile(Project project, VirtualFile configFile, ProgressIndicator indicator) {
+    String runId = BatchRenameOutcomeLog.newRunId();
+    BatchRenameOutcomeLog outcomeLog = BatchRenameOutcomeLog.createInLogDirectory(runId);
+    BatchRenameResult result;
+    try {
+      result = BatchRenameRunner.run(project, () -> JsonInputDialog.openReader(configFile), indicator,
+          askToResume(project), outcomeLog);
+    } catch (IOException ex) {
+      showError(project, "Error reading rename configuration: " + ex.getMessage());
+      return;
+    } catch (IllegalArgumentException ex) {
+      showError(project, ex.getMessage());
+      return;
+    } finally {
+      BatchRenameOutcomeLog.closeQuietly(outcomeLog);
+    }
+    showSummary(project, result, runId);
+  }
 
   /**
-   * Renames a specific PsiNamedElement
+   * Asks on the EDT whether an interrupted run of the same configuration should be continued
    */
-  private boolean renameSymbolElement(Project project, PsiNamedElement element, String newName) {
-    boolean[] success = new boolean[1];
-    WriteCommandAction.runWriteCommandAction(project, () -> {
-      try {
-        RenameProcessor processor = new RenameProcessor(project, element, newName, false, false);
-        processor.run();
-        success[0] = true;
-      } catch (Exception e) {
-        success[0] = false;
-      }
-    });
-
-    return success[0];
+  private BatchRenameRunner.ResumeHandler askToResume(Project project) {
+    return (completed, total) -> {
+      boolean[] resume = new boolean[1];
+      ApplicationManager.getApplication().invokeAndWait(() -> resume[0] = Messages.showYesNoDialog(project,
+          "An earlier run of this configuration was interrupted after " + completed + " of " + total
+              + " operations.\nResume from operation " + (completed + 1) + ", or start over?",
+          "Resume Batch Rename", "Resume", "Start Over", Messages.getQuestionIcon()) == Messages.YES);
+      return resume[0];
+    };
   }
 
-  private boolean renameSymbol(Project project, String filePath, int line, int column, String newName) {
-    VirtualFile vf;
-
-    if (new File(filePath).isAbsolute()) {
-      vf = LocalFileSystem.getInstance().findFileByIoFile(new File(filePath));
-    } else {
-      VirtualFile projectDir = ProjectUtil.guessProjectDir(project);
-      if (projectDir == null) {
-        System.out.println("Cannot resolve project directory for relative path: " + filePath);
-        return false;
-      }
-      vf = projectDir.findFileByRelativePath(filePath);
-    }
-
-    if (vf == null) {
-      System.out.println("File not found: " + filePath);
-      return false;
-    }
-
-    PsiFile psiFile = PsiManager.getInstance(project).findFile(vf);
-    if (psiFile == null) return false;
-
-    Document doc = FileDocumentManager.getInstance().getDocument(vf);
-    if (doc == null) return false;
+  private void showSummary(Project project, BatchRenameResult result, String runId) {
+    String summary = result.getSummary() + writeMetrics(result, runId);
+    ApplicationManager.getApplication().invokeLater(() -> {
+      BatchRenameToolWindowFactory.showRun(project, "Batch Rename " + runId, result);
+      Messages.showInfoMessage(project, summary, "Rename Operations Complete");
+    }, project.getDisposed());
+  }
 
-    int offset = doc.getLineStartOffset(line) + column;
-    PsiElement element = psiFile.findElementAt(offset);
-    if (element == null) {
-      System.out.println("No element at offset " + offset);
-      return false;
+  /**
+   * Writes the run's timings to the IDE's log directory and returns a line pointing to them
+   */
+  private String writeMetrics(BatchRenameResult result, String runId) {
+    if (result.getMetrics() == null) return "";
+
+    Path metricsFile = Path.of(PathManager.getLogPath(), "batch-renamer", "metrics-" + runId + ".json");
+    try {
+      BatchRenameReport.writeMetrics(result.getMetrics(), metricsFile);
+      return "Metrics written to " + metricsFile + "\n";
+    } catch (IOException ex) {
+      LOG.warn("Cannot write batch rename metrics to " + metricsFile, ex);
+      return "";
     }
+  }
 
-    PsiNamedElement namedElement = PsiTreeUtil.getParentOfType(element, PsiNamedElement.class);
-    if (namedElement == null) {
-      System.out.println("No named element at that position.");
-      return false;
-    }
+  private void showPreview(Project project, BatchRenamePreviewResult result) {
+    ApplicationManager.getApplication().invokeLater(() ->
+        Messages.showInfoMessage(project, result.getSummary(), "Dry Run Complete"));
+  }
 
-    return renameSymbolElement(project, namedElement, newName);
+  private void showError(Project project, String message) {
+    ApplicationManager.getApplication().invokeLater(() ->
+        Messages.showErrorDialog(project, message, "Error"));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,360 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.PsiCatchSection;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassInitializer;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiDeclarationStatement;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiForStatement;
+import com.intellij.psi.PsiForeachStatement;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiMember;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.PsiPackage;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiParameterListOwner;
+import com.intellij.psi.PsiResourceList;
+import com.intellij.psi.PsiResourceListElement;
+import com.intellij.psi.PsiResourceVariable;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiTryStatement;
+import com.intellij.psi.PsiVariable;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtilCore;
+import com.intellij.psi.util.TypeConversionUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the renames in a batch that cannot all be applied.
+ * <p>
+ * Every rename is added with the scope its name lives in: the containing class for members,
+ * the package for top-level classes, and the block, statement or declaration that declares
+ * local variables and parameters. Methods are keyed by name and erased parameter types, so
+ * overloads do not collide. Once all renames are added, a per-scope map of names is built,
+ * seeded with the members that keep their names, and every rename that lands on a taken
+ * name or targets a symbol that is already renamed is reported.
+ * </p>
+ * <p>
+ * Java does not let a local variable or parameter shadow another one of the same method, so
+ * their new names must also be unique among everything declared inside their scope, and
+ * among the variables declared directly in each enclosing scope up to the method, lambda
+ * parameters included. Variables in sibling blocks do not clash.
+ * </p>
+ * <p>
+ * Only strings are kept between calls, so a detector can collect a whole batch chunk by
+ * chunk without holding on to PSI. {@link #add} must be called in a read action. Whether a
+ * name is taken depends on which symbols the rest of the batch renames, so one small record
+ * is kept per rename until {@link #findConflicts}: the detector grows with the batch, not
+ * with its chunk size.
+ * </p>
+ */
+public class BatchConflictDetector {
+  private final List<Target> targets = new ArrayList<>();
+  /**
+   * Members declared anywhere within each scope
+   */
+  private final Map<String, List<Member>> scopes = new HashMap<>();
+  /**
+   * Variables declared directly in each scope that encloses a renamed local
+   */
+  private final Map<String, List<Member>> declarations = new HashMap<>();
+
+  private record Target(String elementKey, @Nullable String scopeKey, List<String> enclosingScopeKeys,
+                        String newNameKey, String newName, String location) {
+  }
+
+  private record Member(String elementKey, String nameKey, String description) {
+  }
+
+  /**
+   * A rename that cannot be applied together with the others
+   */
+  public record Conflict(String location, String reason) {
+    public String getMessage() {
+      return "Conflict at " + location + ": " + reason;
+    }
+  }
+
+  /**
+   * Adds one rename of the batch
+   *
+   * @param location How the rename is identified in conflict messages
+   */
+  public void add(PsiNamedElement element, String newName, String location) {
+    PsiElement scope = scopeOf(element);
+    String scopeKey = scope != null ? scopeKey(scope) : null;
+    if (scopeKey != null && !scopes.containsKey(scopeKey)) {
+      scopes.put(scopeKey, membersOf(scope));
+    }
+
+    List<String> enclosingScopeKeys = new ArrayList<>();
+    if (isVariableScope(scope)) {
+      addDeclarations(scopeKey, scope);
+      for (PsiElement enclosing = scope; !isCodeMember(enclosing); ) {
+        enclosing = enclosing.getParent();
+        if (!isVariableScope(enclosing)) continue;
+        String enclosingKey = scopeKey(enclosing);
+        if (!scopes.containsKey(enclosingKey)) {
+          scopes.put(enclosingKey, membersOf(enclosing));
+        }
+        addDeclarations(enclosingKey, enclosing);
+        enclosingScopeKeys.add(enclosingKey);
+      }
+    }
+    targets.add(new Target(elementKey(element), scopeKey, List.copyOf(enclosingScopeKeys),
+        nameKey(element, newName), newName, location));
+  }
+
+  public boolean isEmpty() {
+    return targets.isEmpty();
+  }
+
+  /**
+   * Returns every rename that conflicts with an earlier one or with a name that is already
+   * taken, in the order the renames were added
+   */
+  public List<Conflict> findConflicts() {
+    List<Conflict> conflicts = new ArrayList<>();
+
+    Map<String, String> renamedBy = new HashMap<>();
+    Set<Integer> duplicates = new HashSet<>();
+    for (int i = 0; i < targets.size(); i++) {
+      Target target = targets.get(i);
+      String first = renamedBy.putIfAbsent(target.elementKey(), target.location());
+      if (first != null) {
+        duplicates.add(i);
+      }
+    }
+
+    // Names in each scope: members that keep their name, then the new names in batch order
+    Map<String, Map<String, String>> names = new HashMap<>();
+    Map<String, Map<String, String>> declaredNames = new HashMap<>();
+    for (int i = 0; i < targets.size(); i++) {
+      Target target = targets.get(i);
+      if (duplicates.contains(i)) {
+        conflicts.add(new Conflict(target.location(), "the same symbol is already renamed by "
+            + renamedBy.get(target.elementKey())));
+        continue;
+      }
+      if (target.scopeKey() == null) continue;
+
+      String owner = names(names, scopes, target.scopeKey(), renamedBy).get(target.newNameKey());
+      for (String enclosingKey : target.enclosingScopeKeys()) {
+        if (owner != null) break;
+        owner = names(declaredNames, declarations, enclosingKey, renamedBy).get(target.newNameKey());
+      }
+      if (owner != null) {
+        conflicts.add(new Conflict(target.location(), "'" + target.newName() + "' clashes with " + owner));
+        continue;
+      }
+
+      String renamed = "the rename at " + target.location();
+      names(names, scopes, target.scopeKey(), renamedBy).put(target.newNameKey(), renamed);
+      if (declarations.containsKey(target.scopeKey())) {
+        names(declaredNames, declarations, target.scopeKey(), renamedBy).put(target.newNameKey(), renamed);
+      }
+      // The new name is now declared within every enclosing scope as well
+      for (String enclosingKey : target.enclosingScopeKeys()) {
+        names(names, scopes, enclosingKey, renamedBy).put(target.newNameKey(), renamed);
+      }
+    }
+    return conflicts;
+  }
+
+  /**
+   * Names taken in a scope, seeded on first use with its members that keep their names
+   */
+  private static Map<String, String> names(Map<String, Map<String, String>> names, Map<String, List<Member>> members,
+                                           String scopeKey, Map<String, String> renamedBy) {
+    return names.computeIfAbsent(scopeKey, key -> {
+      Map<String, String> taken = new HashMap<>();
+      for (Member member : members.get(key)) {
+        if (!renamedBy.containsKey(member.elementKey())) {
+          taken.put(member.nameKey(), "the existing " + member.description());
+        }
+      }
+      return taken;
+    });
+  }
+
+  /**
+   * The element whose names the element's name has to be unique among, or null if it is not checked
+   */
+  @Nullable
+  private static PsiElement scopeOf(PsiNamedElement element) {
+    if (element instanceof PsiMember member && member.getContainingClass() != null) {
+      return member.getContainingClass();
+    }
+    if (element instanceof PsiClass && element.getContainingFile() instanceof PsiJavaFile javaFile) {
+      return JavaPsiFacade.getInstance(element.getProject()).findPackage(javaFile.getPackageName());
+    }
+    if (element instanceof PsiParameter parameter) {
+      // A method or lambda, or the catch section or for-each loop declaring it
+      return parameter.getDeclarationScope();
+    }
+    if (element instanceof PsiResourceVariable resource) {
+      PsiTryStatement tryStatement = PsiTreeUtil.getParentOfType(resource, PsiTryStatement.class);
+      return tryStatement != null ? tryStatement.getTryBlock() : null;
+    }
+    if (element instanceof PsiLocalVariable) {
+      return PsiTreeUtil.getParentOfType(element, PsiCodeBlock.class, PsiForStatement.class);
+    }
+    return null;
+  }
+
+  private static boolean isVariableScope(@Nullable PsiElement element) {
+    return element instanceof PsiCodeBlock || element instanceof PsiForStatement
+        || element instanceof PsiForeachStatement || element instanceof PsiCatchSection
+        || element instanceof PsiParameterListOwner;
+  }
+
+  /**
+   * Where the walk through enclosing scopes stops: variables outside it can be shadowed
+   */
+  private static boolean isCodeMember(@Nullable PsiElement element) {
+    return element == null || element instanceof PsiMethod || element instanceof PsiClassInitializer
+        || element instanceof PsiClass || element instanceof PsiField || element instanceof PsiFile;
+  }
+
+  private void addDeclarations(String scopeKey, PsiElement scope) {
+    if (declarations.containsKey(scopeKey)) return;
+    List<Member> members = new ArrayList<>();
+    if (scope instanceof PsiCodeBlock block) {
+      for (PsiStatement statement : block.getStatements()) {
+        addLocals(members, statement);
+      }
+      addResources(members, block);
+    } else if (scope instanceof PsiForStatement forStatement) {
+      addLocals(members, forStatement.getInitialization());
+    } else if (scope instanceof PsiForeachStatement foreach) {
+      addMember(members, foreach.getIterationParameter());
+    } else if (scope instanceof PsiCatchSection catchSection) {
+      PsiParameter parameter = catchSection.getParameter();
+      if (parameter != null) {
+        addMember(members, parameter);
+      }
+    } else if (scope instanceof PsiParameterListOwner owner) {
+      for (PsiParameter parameter : owner.getParameterList().getParameters()) {
+        addMember(members, parameter);
+      }
+    }
+    declarations.put(scopeKey, members);
+  }
+
+  /**
+   * Resource variables are declared outside the try block they belong to
+   */
+  private static void addResources(List<Member> members, PsiCodeBlock block) {
+    if (!(block.getParent() instanceof PsiTryStatement tryStatement) || tryStatement.getTryBlock() != block) return;
+    PsiResourceList resources = tryStatement.getResourceList();
+    if (resources == null) return;
+    for (PsiResourceListElement resource : resources) {
+      if (resource instanceof PsiResourceVariable variable) {
+        addMember(members, variable);
+      }
+    }
+  }
+
+  private static void addLocals(List<Member> members, @Nullable PsiStatement statement) {
+    if (!(statement instanceof PsiDeclarationStatement declaration)) return;
+    for (PsiElement declared : declaration.getDeclaredElements()) {
+      if (declared instanceof PsiLocalVariable variable) {
+        addMember(members, variable);
+      }
+    }
+  }
+
+  private static List<Member> membersOf(PsiElement scope) {
+    List<Member> members = new ArrayList<>();
+    if (scope instanceof PsiClass psiClass) {
+      for (PsiField field : psiClass.getFields()) {
+        addMember(members, field);
+      }
+      for (PsiMethod method : psiClass.getMethods()) {
+        if (!method.isConstructor()) {
+          addMember(members, method);
+        }
+      }
+      for (PsiClass innerClass : psiClass.getInnerClasses()) {
+        addMember(members, innerClass);
+      }
+    } else if (scope instanceof PsiPackage psiPackage) {
+      for (PsiClass psiClass : psiPackage.getClasses(GlobalSearchScope.projectScope(scope.getProject()))) {
+        addMember(members, psiClass);
+      }
+    } else if (scope != null) {
+      if (scope instanceof PsiCodeBlock block) {
+        addResources(members, block);
+      }
+      // Every variable declared within, except in local and anonymous classes
+      scope.accept(new JavaRecursiveElementWalkingVisitor() {
+        @Override
+        public void visitClass(PsiClass aClass) {
+        }
+
+        @Override
+        public void visitVariable(PsiVariable variable) {
+          if (!(variable instanceof PsiField)) {
+            addMember(members, variable);
+          }
+          super.visitVariable(variable);
+        }
+      });
+    }
+    return members;
+  }
+
+  private static void addMember(List<Member> members, PsiNamedElement element) {
+    String name = element.getName();
+    if (name == null) return;
+    String nameKey = nameKey(element, name);
+    members.add(new Member(elementKey(element), nameKey, nameKey.replaceFirst(" ", " '") + "'"));
+  }
+
+  /**
+   * Names of different kinds of symbols do not clash, nor do methods with different parameters
+   */
+  private static String nameKey(PsiNamedElement element, String name) {
+    if (element instanceof PsiMethod method) {
+      StringBuilder key = new StringBuilder("method ").append(name).append('(');
+      PsiParameter[] parameters = method.getParameterList().getParameters();
+      for (int i = 0; i < parameters.length; i++) {
+        if (i > 0) key.append(", ");
+        key.append(TypeConversionUtil.erasure(parameters[i].getType()).getPresentableText());
+      }
+      return key.append(')').toString();
+    }
+    if (element instanceof PsiClass) return "class " + name;
+    if (element instanceof PsiField) return "field " + name;
+    return "variable " + name;
+  }
+
+  private static String scopeKey(PsiElement scope) {
+    if (scope instanceof PsiPackage psiPackage) {
+      return "package " + psiPackage.getQualifiedName();
+    }
+    return elementKey(scope);
+  }
+
+  private static String elementKey(PsiElement element) {
+    VirtualFile file = PsiUtilCore.getVirtualFile(element);
+    return (file != null ? file.getUrl() : String.valueOf(System.identityHashCode(element.getContainingFile())))
+        + "#" + element.getTextOffset();
+  }
+}
@@ -0,0 +1,356 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.SmartPsiElementPointer;
+import org.jetbrains.annotations.Nullable;
+import solop.cc.model.RenameConfig;
+import solop.cc.model.RenameConfigReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies rename operations chunk by chunk, each chunk in two phases.
+ * <p>
+ * First every operation is resolved to a smart pointer by {@link RenameTargetResolver}.
+ * Line/column coordinates always refer to the documents as they were before the run;
+ * edits made by earlier chunks are recorded in a {@link DocumentEditLog} and applied to
+ * the coordinates of later ones. Then the chunk's renames are handed to a
+ * {@link RenameWriteScheduler}: usages are searched for in background read actions, and
+ * the rewrites are posted to the EDT as short write commands, each a combined refactoring
+ * of a slice of the chunk, so the IDE stays responsive during the run.
+ * </p>
+ * <p>
+ * All write commands of a run share one undo group, so the whole run is undone in one step.
+ * Documents are only saved after every slice when the run is journaled; otherwise saving is
+ * left to the IDE.
+ * </p>
+ * <p>
+ * Before the first chunk is applied, the whole batch is checked by a {@link BatchConflictDetector}
+ * in a pre-flight pass that only resolves the operations. If any renames collide, nothing is
+ * renamed and the conflicts are reported instead, rather than failing halfway through the run.
+ * The pre-flight resolves every operation a second time, and the detector keeps a small
+ * record per operation, so its cost grows with the whole batch rather than with the chunk size.
+ * </p>
+ * <p>
+ * With a {@link BatchRenameJournal}, the touched documents are saved after every slice and
+ * the slice is checkpointed, so an interrupted run can be resumed: the operations completed
+ * earlier are skipped and the edits they made are restored into the edit log. An operation
+ * that selects several symbols only counts as completed once all of them are renamed.
+ * </p>
+ * <p>
+ * Every phase is timed in a {@link BatchRenameMetrics}, which is handed out with the result.
+ * </p>
+ * <p>
+ * The engine listens to document changes until it is disposed.
+ * </p>
+ */
+public class BatchRenameEngine implements Disposable {
+  private static final Logger LOG = Logger.getInstance(BatchRenameEngine.class);
+  private static final String COMMAND_NAME = "Batch Rename Symbols";
+
+  private final Project project;
+  private final FileLookupCache files;
+  private final BatchRenameResult result = new BatchRenameResult();
+  private final DocumentEditLog editLog = new DocumentEditLog();
+  private final BatchConflictDetector conflicts = new BatchConflictDetector();
+  private final BatchRenameMetrics metrics = new BatchRenameMetrics();
+  private final RenameWriteScheduler writer;
+  private int chunkSize = RenameConfigReader.DEFAULT_CHUNK_SIZE;
+  private int expectedOperations;
+  private int processedOperations;
+  private BatchRenameJournal journal;
+  private int skippedOperations;
+
+  /**
+   * @param project The project to rename in
+   * @param files   Lookup cache for this run, with the base path of the config already set
+   */
+  public BatchRenameEngine(Project project, FileLookupCache files) {
+    this.project = project;
+    this.files = files;
+    result.setMetrics(metrics);
+    writer = new RenameWriteScheduler(project, COMMAND_NAME);
+    writer.setMetrics(metrics);
+    EditorFactory.getInstance().getEventMulticaster().addDocumentListener(editLog, this);
+  }
+
+  /**
+   * Resolves and applies all operations in chunks, returning the collected outcome.
+   * The engine is disposed afterwards.
+   */
+  public BatchRenameResult run(List<RenameConfig.RenameOperation> operations, ProgressIndicator indicator) {
+    try {
+      setExpectedOperations(operations.size());
+      if (!isResuming()) {
+        for (int from = 0; from < operations.size(); from += chunkSize) {
+          checkConflicts(operations.subList(from, Math.min(from + chunkSize, operations.size())), indicator);
+        }
+        if (!reportConflicts()) {
+          return getResult();
+        }
+      }
+      for (int from = 0; from < operations.size(); from += chunkSize) {
+        process(operations.subList(from, Math.min(from + chunkSize, operations.size())), indicator);
+      }
+      return getResult();
+    } finally {
+      Disposer.dispose(this);
+    }
+  }
+
+  /**
+   * Checkpoints every slice in the journal. If {@code resume} is set, the operations the
+   * journal records as completed are skipped; otherwise its earlier checkpoint is discarded.
+   * Must be called before the first chunk; the journal is closed when the engine is disposed.
+   *
+   * @throws IOException if the journal cannot be reset, or the edits it records cannot be
+   *     restored; the engine is then left without a journal
+   */
+  public void setJournal(BatchRenameJournal journal, boolean resume) throws IOException {
+    // A checkpoint must not outlive the edits it describes
+    writer.setSaveDocuments(true);
+    if (!resume) {
+      journal.reset();
+      this.journal = journal;
+      return;
+    }
+    for (Map.Entry<String, List<int[]>> entry : journal.getEdits().entrySet()) {
+      if (!DocumentEditLog.canRestore(entry.getValue())) {
+        throw new IOException("Cannot resume, the interrupted run added or removed lines in " + entry.getKey());
+      }
+    }
+    this.journal = journal;
+
+    skippedOperations = journal.getCommittedOperations();
+    result.setSkippedOperations(skippedOperations);
+    for (Map.Entry<String, List<int[]>> entry : journal.getEdits().entrySet()) {
+      VirtualFile file = VirtualFileManager.getInstance().findFileByUrl(entry.getKey());
+      Document doc = file != null ? ReadAction.compute(() -> FileDocumentManager.getInstance().getDocument(file)) : null;
+      if (doc != null) {
+        editLog.restore(doc, entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Whether operations completed by an interrupted earlier run are skipped. Such runs already
+   * passed the pre-flight check, and their renamed documents would now clash with themselves.
+   */
+  public boolean isResuming() {
+    return skippedOperations > 0;
+  }
+
+  /**
+   * Pre-flight: resolves a chunk without applying it and adds its targets to the conflict check.
+   * Must be called for every chunk, before the first one is processed.
+   */
+  public void checkConflicts(List<RenameConfig.RenameOperation> chunk, ProgressIndicator indicator) {
+    indicator.checkCanceled();
+    indicator.setText("Checking for conflicts...");
+    try (BatchRenameMetrics.Timer ignored = metrics.time(BatchRenameMetrics.Phase.CONFLICT_CHECK)) {
+      // Unresolved operations are reported when the chunk is processed
+      List<ResolvedRename> resolved = new RenameTargetResolver(project, files, editLog)
+          .resolve(chunk, indicator, new BatchRenameResult());
+      ReadAction.run(() -> {
+        for (ResolvedRename target : resolved) {
+          PsiNamedElement element = target.getTarget().getElement();
+          if (element != null) {
+            conflicts.add(element, target.getNewName(), target.getLocation());
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Ends the pre-flight check. Conflicts are reported as errors, and the run must not go ahead.
+   *
+   * @return Whether the batch is free of conflicts
+   */
+  public boolean reportConflicts() {
+    List<BatchConflictDetector.Conflict> found = conflicts.findConflicts();
+    if (found.isEmpty()) return true;
+
+    result.addOperations(expectedOperations);
+    for (BatchConflictDetector.Conflict conflict : found) {
+      result.addConflict(conflict.location(), conflict.reason());
+    }
+    return false;
+  }
+
+  /**
+   * Deletes the journal after every chunk has been processed
+   */
+  public void completeJournal() {
+    if (journal == null) return;
+    try {
+      journal.delete();
+    } catch (IOException ex) {
+      LOG.warn("Cannot delete batch rename journal", ex);
+    }
+  }
+
+  /**
+   * Streams the outcome of every operation to the log; the caller closes it after the run
+   */
+  public void setOutcomeLog(@Nullable BatchRenameOutcomeLog outcomeLog) {
+    result.setOutcomeLog(outcomeLog);
+  }
+
+  /**
+   * Sets the number of operations {@link #run} resolves and applies together
+   */
+  public void setChunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Sets the total number of operations that will be passed to {@link #process}, used for progress reporting
+   */
+  public void setExpectedOperations(int expectedOperations) {
+    this.expectedOperations = expectedOperations;
+  }
+
+  /**
+   * Resolves and applies one chunk of operations. Chunks are processed one after
+   * another, so only the current chunk's targets are held in memory.
+   */
+  public void process(List<RenameConfig.RenameOperation> chunk, ProgressIndicator indicator) {
+    indicator.checkCanceled();
+    int chunkStart = processedOperations;
+    int chunkEnd = chunkStart + chunk.size();
+    if (chunkEnd <= skippedOperations) {
+      // Completed by an interrupted earlier run
+      processedOperations = chunkEnd;
+      return;
+    }
+    if (chunkStart < skippedOperations) {
+      chunk = chunk.subList(skippedOperations - chunkStart, chunk.size());
+      processedOperations = skippedOperations;
+    }
+    result.addOperations(chunk.size());
+
+    indicator.setIndeterminate(false);
+    indicator.setText("Resolving rename targets...");
+    setFraction(indicator, 0);
+    List<ResolvedRename> resolved;
+    try (BatchRenameMetrics.Timer ignored = metrics.trace("resolveChunk")) {
+      resolved = new RenameTargetResolver(project, files, editLog, metrics).resolve(chunk, indicator, result);
+    }
+
+    indicator.setText("Applying renames...");
+    setFraction(indicator, chunk.size() / 2);
+    try (BatchRenameMetrics.Timer ignored = metrics.trace("applyChunk")) {
+      apply(resolved, indicator);
+    }
+
+    processedOperations += chunk.size();
+    setFraction(indicator, 0);
+    checkpoint(processedOperations);
+  }
+
+  /**
+   * Journals the edits made since the last checkpoint and the number of completed operations
+   */
+  private void checkpoint(int completedOperations) {
+    if (journal == null) return;
+
+    Map<String, int[]> newEdits = new LinkedHashMap<>();
+    ApplicationManager.getApplication().invokeAndWait(() -> {
+      editLog.takeNewEdits().forEach((doc, edits) -> {
+        VirtualFile file = FileDocumentManager.getInstance().getFile(doc);
+        if (file != null) {
+          newEdits.put(file.getUrl(), edits);
+        }
+      });
+    });
+
+    try {
+      journal.commit(completedOperations, newEdits);
+    } catch (IOException ex) {
+      // The run itself is unaffected, it just cannot be resumed
+      LOG.warn("Cannot write batch rename journal, checkpointing disabled", ex);
+      closeJournal();
+      journal = null;
+    }
+  }
+
+  public BatchRenameResult getResult() {
+    result.setFileLookups(files.getHits(), files.getMisses());
+    metrics.finish(result.getSucceeded());
+    return result;
+  }
+
+  @Override
+  public void dispose() {
+    // The document listener is registered with this engine as parent and removed by the Disposer
+    closeJournal();
+    metrics.close();
+  }
+
+  private void closeJournal() {
+    if (journal == null) return;
+    try {
+      journal.close();
+    } catch (IOException ex) {
+      LOG.warn("Cannot close batch rename journal", ex);
+    }
+  }
+
+  private void setFraction(ProgressIndicator indicator, int inChunk) {
+    int total = Math.max(expectedOperations, processedOperations + inChunk);
+    if (total > 0) {
+      indicator.setFraction((double) (processedOperations + inChunk) / total);
+    }
+  }
+
+  /**
+   * Phase two: applies the resolved renames through the {@link RenameWriteScheduler}, which
+   * searches for usages in the background and writes them to the EDT in short slices
+   */
+  private void apply(List<ResolvedRename> resolved, ProgressIndicator indicator) {
+    if (resolved.isEmpty()) return;
+
+    List<SmartPsiElementPointer<PsiNamedElement>> targets = new ArrayList<>(resolved.size());
+    List<String> newNames = new ArrayList<>(resolved.size());
+    for (ResolvedRename target : resolved) {
+      targets.add(target.getTarget());
+      newNames.add(target.getNewName());
+    }
+
+    indicator.setText2("Renaming " + resolved.size() + " symbols");
+    int[] reported = new int[1];
+    writer.rename(targets, newNames, indicator, (errors, done) -> {
+      for (int i = reported[0]; i < done; i++) {
+        ResolvedRename target = resolved.get(i);
+        if (errors[i] == null) {
+          result.addSuccess(target.getLocation(), target.getNewName());
+        } else {
+          result.addFailure(target.getLocation(), errors[i]);
+        }
+      }
+      reported[0] = done;
+      // The last slice is checkpointed with the chunk, which also counts its unresolved operations
+      if (done < resolved.size()) {
+        // Targets are in operation order; those before the next target's operation are complete
+        checkpoint(processedOperations + resolved.get(done).getOperationIndex());
+      }
+    });
+  }
+}
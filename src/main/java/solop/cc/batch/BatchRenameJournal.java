@@ -0,0 +1,295 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.project.Project;
+import solop.cc.model.RenameConfig;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only checkpoint log of a batch rename run, so an interrupted run can be resumed.
+ * <p>
+ * The journal lives in the IDE's system directory and is keyed by a hash of the project
+ * and the configuration. After each slice of a chunk has been applied and saved, the document
+ * edits it made are appended, followed by the number of operations completed so far. Lines are
+ * forced to disk before the next slice starts. Every line carries a checksum and must end
+ * with a newline, so a line cut short by a crash is recognized on load; it and everything
+ * after the last completed count are ignored, and cut off before the next run appends to the
+ * journal. The journal is deleted when a run completes.
+ * </p>
+ * <p>
+ * Format: {@code <crc32> E <file url>\t<offset>,<old length>,<new length>,<line breaks>;...}
+ * per edited file, where line breaks counts those the edit removed and inserted, and {@code <crc32> C <completed operations>} per slice, where the CRC-32 of the rest of
+ * the line is written as eight hex digits.
+ * </p>
+ */
+public class BatchRenameJournal implements Closeable {
+  private static final String EDITS = "E ";
+  private static final String COMMITTED = "C ";
+  private static final int CHECKSUM_LENGTH = 8;
+
+  private final Path file;
+  private final Map<String, List<int[]>> edits = new LinkedHashMap<>();
+  private int committedOperations;
+  /**
+   * Length of the journal up to the end of its last completed count
+   */
+  private long committedLength;
+  private FileChannel channel;
+
+  private BatchRenameJournal(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Opens the journal of a configuration, loading the checkpoint of an earlier run if there is one
+   */
+  public static BatchRenameJournal open(Project project, String configHash) throws IOException {
+    Path dir = Path.of(PathManager.getSystemPath(), "batch-renamer");
+    Files.createDirectories(dir);
+    return open(dir.resolve(sha256(project.getLocationHash() + configHash) + ".journal"));
+  }
+
+  static BatchRenameJournal open(Path file) throws IOException {
+    BatchRenameJournal journal = new BatchRenameJournal(file);
+    journal.load();
+    return journal;
+  }
+
+  /**
+   * Number of operations completed by earlier runs of the same configuration
+   */
+  public int getCommittedOperations() {
+    return committedOperations;
+  }
+
+  /**
+   * Edits made by earlier runs, per file url, each as {offset, old length, new length} in the order they were made
+   */
+  Map<String, List<int[]>> getEdits() {
+    return edits;
+  }
+
+  /**
+   * Forgets the checkpoint of earlier runs
+   */
+  public void reset() throws IOException {
+    closeChannel();
+    Files.deleteIfExists(file);
+    edits.clear();
+    committedOperations = 0;
+    committedLength = 0;
+  }
+
+  /**
+   * Appends the edits made since the last commit and the new number of completed operations,
+   * and forces them to disk
+   */
+  void commit(int completedOperations, Map<String, int[]> newEdits) throws IOException {
+    if (channel == null) {
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      // Drop what a crashed run left after its last completed count
+      channel.truncate(committedLength);
+      channel.position(committedLength);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (Map.Entry<String, int[]> entry : newEdits.entrySet()) {
+      int[] fileEdits = entry.getValue();
+      StringBuilder line = new StringBuilder(EDITS).append(entry.getKey()).append('\t');
+      for (int i = 0; i < fileEdits.length; i += 4) {
+        if (i > 0) line.append(';');
+        line.append(fileEdits[i]).append(',').append(fileEdits[i + 1]).append(',').append(fileEdits[i + 2])
+            .append(',').append(fileEdits[i + 3]);
+      }
+      writeLine(out, line.toString());
+    }
+    writeLine(out, COMMITTED + completedOperations);
+
+    ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+    committedOperations = completedOperations;
+    committedLength = channel.position();
+  }
+
+  /**
+   * Removes the journal once the run it belongs to has completed
+   */
+  public void delete() throws IOException {
+    reset();
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeChannel();
+  }
+
+  private void closeChannel() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private void load() throws IOException {
+    Map<String, List<int[]>> pending = new LinkedHashMap<>();
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      long length = 0;
+      String line;
+      while ((line = readLine(in, bytes)) != null) {
+        length += bytes.size() + 1;
+        if (line.startsWith(EDITS)) {
+          int tab = line.indexOf('\t');
+          if (tab < 0) break;
+          List<int[]> fileEdits = pending.computeIfAbsent(line.substring(EDITS.length(), tab), url -> new ArrayList<>());
+          for (String edit : line.substring(tab + 1).split(";")) {
+            String[] parts = edit.split(",");
+            // Journals written before line breaks were counted have three numbers per edit
+            int lineBreaks = parts.length > 3 ? Integer.parseInt(parts[3]) : 0;
+            fileEdits.add(new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), lineBreaks});
+          }
+        } else if (line.startsWith(COMMITTED)) {
+          committedOperations = Integer.parseInt(line.substring(COMMITTED.length()));
+          committedLength = length;
+          pending.forEach((url, fileEdits) -> edits.computeIfAbsent(url, u -> new ArrayList<>()).addAll(fileEdits));
+          pending.clear();
+        } else {
+          break;
+        }
+      }
+    } catch (NoSuchFileException ignored) {
+      // No earlier run
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException ignored) {
+      // Not written by this version; everything up to the last completed count is kept
+    }
+  }
+
+  private static void writeLine(ByteArrayOutputStream out, String record) {
+    byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    out.writeBytes(HexFormat.of().toHexDigits((int) crc.getValue()).getBytes(StandardCharsets.US_ASCII));
+    out.write(' ');
+    out.writeBytes(bytes);
+    out.write('\n');
+  }
+
+  /**
+   * Reads the next line into {@code bytes} and returns its record, or null at the end of the
+   * journal or at a line that is incomplete or fails its checksum
+   */
+  private static String readLine(InputStream in, ByteArrayOutputStream bytes) throws IOException {
+    bytes.reset();
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b < 0) return null;
+      bytes.write(b);
+    }
+    byte[] line = bytes.toByteArray();
+    if (line.length <= CHECKSUM_LENGTH || line[CHECKSUM_LENGTH] != ' ') return null;
+    CRC32 crc = new CRC32();
+    crc.update(line, CHECKSUM_LENGTH + 1, line.length - CHECKSUM_LENGTH - 1);
+    String checksum = new String(line, 0, CHECKSUM_LENGTH, StandardCharsets.US_ASCII);
+    if (!checksum.equals(HexFormat.of().toHexDigits((int) crc.getValue()))) return null;
+    return new String(line, CHECKSUM_LENGTH + 1, line.length - CHECKSUM_LENGTH - 1, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Hashes a configuration that is already in memory
+   */
+  public static String hash(RenameConfig config) {
+    MessageDigest digest = newDigest();
+    update(digest, config.getBasePath());
+    for (RenameConfig.RenameOperation op : config.getOperations()) {
+      update(digest, op.getFilePath());
+      update(digest, op.getLine() + "," + op.getColumn() + (op.hasOffset() ? "@" + op.getOffset() : ""));
+      update(digest, op.getSymbol());
+      update(digest, op.getNamePattern());
+      update(digest, op.getKind());
+      update(digest, op.getOldName());
+      update(digest, op.getNewName());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Wraps a reader so that everything read through it is added to the digest
+   */
+  static Reader digesting(Reader reader, MessageDigest digest) {
+    return new FilterReader(reader) {
+      @Override
+      public int read() throws IOException {
+        int c = super.read();
+        if (c >= 0) {
+          update(digest, (char) c);
+        }
+        return c;
+      }
+
+      @Override
+      public int read(char[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+        if (count > 0) {
+          byte[] bytes = new byte[count * 2];
+          for (int i = 0; i < count; i++) {
+            bytes[2 * i] = (byte) (buffer[offset + i] >> 8);
+            bytes[2 * i + 1] = (byte) buffer[offset + i];
+          }
+          digest.update(bytes);
+        }
+        return count;
+      }
+    };
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void update(MessageDigest digest, char c) {
+    digest.update((byte) (c >> 8));
+    digest.update((byte) c);
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    if (value != null) {
+      digest.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+    digest.update((byte) 0);
+  }
+
+  private static String sha256(String value) {
+    MessageDigest digest = newDigest();
+    update(digest, value);
+    return HexFormat.of().formatHex(digest.digest());
+  }
+}
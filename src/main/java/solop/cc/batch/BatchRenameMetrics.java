@@ -0,0 +1,196 @@
+package solop.cc.batch;
+
+import com.intellij.platform.diagnostic.telemetry.Scope;
+import com.intellij.platform.diagnostic.telemetry.TelemetryManager;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Timers and counters for one batch rename run.
+ * <p>
+ * Every phase keeps the duration of each of its samples: one per file lookup, per resolved
+ * operation and per document commit, and one per refactoring call for usage search and write,
+ * which handle a whole chunk at once. Percentiles are computed from the samples when asked for.
+ * </p>
+ * <p>
+ * The run and its chunk-level phases are also traced as OpenTelemetry spans through the IDE's
+ * {@link TelemetryManager}, so they show up next to the platform's own spans in trace exports
+ * and profiler snapshots. Per-operation samples are only counted, not traced.
+ * </p>
+ */
+public class BatchRenameMetrics {
+  private static final Tracer TRACER = TelemetryManager.getInstance().getTracer(new Scope("batchRenamer", null, false));
+
+  public enum Phase {
+    FILE_LOOKUP("fileLookup"),
+    RESOLVE("resolve"),
+    CONFLICT_CHECK("conflictCheck"),
+    USAGE_SEARCH("usageSearch"),
+    WRITE("write"),
+    COMMIT("commit");
+
+    private final String key;
+
+    Phase(String key) {
+      this.key = key;
+    }
+
+    /**
+     * Name of the phase in the metrics file and in trace spans
+     */
+    public String getKey() {
+      return key;
+    }
+  }
+
+  /**
+   * A running phase; closing it records a sample and ends its span
+   */
+  public interface Timer extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private final long[][] samples = new long[Phase.values().length][];
+  private final int[] sampleCounts = new int[Phase.values().length];
+  private final Set<String> touchedFiles = new HashSet<>();
+  private final Span runSpan;
+  private final long startNanos;
+  private long endNanos;
+  private int operations;
+  private long usages;
+
+  public BatchRenameMetrics() {
+    Arrays.setAll(samples, i -> new long[64]);
+    runSpan = TRACER.spanBuilder("batchRename").startSpan();
+    startNanos = System.nanoTime();
+  }
+
+  /**
+   * Records one sample of a phase; safe to call from any thread
+   */
+  public synchronized void record(Phase phase, long nanos) {
+    int index = phase.ordinal();
+    if (sampleCounts[index] == samples[index].length) {
+      samples[index] = Arrays.copyOf(samples[index], sampleCounts[index] * 2);
+    }
+    samples[index][sampleCounts[index]++] = nanos;
+  }
+
+  /**
+   * Times a phase on the calling thread as one sample, traced as a child span of the run
+   */
+  public Timer time(Phase phase) {
+    Span span = startSpan(phase.getKey());
+    long start = System.nanoTime();
+    return () -> {
+      record(phase, System.nanoTime() - start);
+      span.end();
+    };
+  }
+
+  /**
+   * Traces a stretch of the run that is made up of other phases, without recording a sample
+   */
+  public Timer trace(String name) {
+    Span span = startSpan(name);
+    return span::end;
+  }
+
+  private Span startSpan(String name) {
+    return TRACER.spanBuilder(name).setParent(Context.current().with(runSpan)).startSpan();
+  }
+
+  public synchronized void addTouchedFile(String path) {
+    touchedFiles.add(path);
+  }
+
+  public synchronized void addUsages(int count) {
+    usages += count;
+  }
+
+  /**
+   * Stops the run's clock; {@code completedOperations} is the number of operations that succeeded
+   */
+  public synchronized void finish(int completedOperations) {
+    operations = completedOperations;
+    endNanos = System.nanoTime();
+    runSpan.setAttribute("operations", operations);
+    runSpan.setAttribute("filesTouched", touchedFiles.size());
+    runSpan.setAttribute("usagesRewritten", usages);
+  }
+
+  /**
+   * Ends the run's span; the metrics stay readable
+   */
+  public void close() {
+    runSpan.end();
+  }
+
+  public synchronized int getOperations() {
+    return operations;
+  }
+
+  public synchronized long getDurationNanos() {
+    return (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+  }
+
+  public double getOperationsPerSecond() {
+    long duration = getDurationNanos();
+    return duration > 0 ? getOperations() * 1e9 / duration : 0;
+  }
+
+  public synchronized int getFilesTouched() {
+    return touchedFiles.size();
+  }
+
+  public synchronized long getUsages() {
+    return usages;
+  }
+
+  public synchronized int getSampleCount(Phase phase) {
+    return sampleCounts[phase.ordinal()];
+  }
+
+  public synchronized long getTotalNanos(Phase phase) {
+    long total = 0;
+    for (int i = 0; i < sampleCounts[phase.ordinal()]; i++) {
+      total += samples[phase.ordinal()][i];
+    }
+    return total;
+  }
+
+  /**
+   * Returns the duration below which the given fraction of a phase's samples fall, 0 without samples
+   */
+  public synchronized long getPercentileNanos(Phase phase, double fraction) {
+    int count = sampleCounts[phase.ordinal()];
+    if (count == 0) return 0;
+    long[] sorted = Arrays.copyOf(samples[phase.ordinal()], count);
+    Arrays.sort(sorted);
+    return sorted[Math.max(0, (int) Math.ceil(fraction * count) - 1)];
+  }
+
+  /**
+   * Builds the timing section of the completion summary
+   */
+  public String getSummary() {
+    StringBuilder message = new StringBuilder();
+    message.append(String.format(Locale.ROOT, "Timing: %.1f s, %.1f operations/s, %d files touched, %d usages rewritten.%n",
+        getDurationNanos() / 1e9, getOperationsPerSecond(), getFilesTouched(), getUsages()));
+    for (Phase phase : Phase.values()) {
+      int count = getSampleCount(phase);
+      if (count == 0) continue;
+      message.append(String.format(Locale.ROOT, "- %s: %.1f ms total, p50 %.2f ms, p99 %.2f ms (%d samples)%n",
+          phase.getKey(), getTotalNanos(phase) / 1e6, getPercentileNanos(phase, 0.5) / 1e6,
+          getPercentileNanos(phase, 0.99) / 1e6, count));
+    }
+    return message.toString();
+  }
+}
@@ -0,0 +1,209 @@
+package solop.cc.batch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Streams the outcome of every operation of a run to a JSON Lines file.
+ * <p>
+ * A run only keeps counts and a small sample of failures in memory; the full record of what
+ * happened to each operation goes to this file as it happens, one object per line, and is
+ * read back page by page when it is browsed. If the file cannot be written, logging stops
+ * with a warning and the run is unaffected.
+ * </p>
+ */
+public class BatchRenameOutcomeLog implements Closeable {
+  private static final Logger LOG = Logger.getInstance(BatchRenameOutcomeLog.class);
+
+  public enum Status {
+    SUCCEEDED, FAILED, CONFLICT
+  }
+
+  /**
+   * One line of the log. {@code detail} is the new name for successes and the reason otherwise.
+   */
+  public record Outcome(Status status, String location, String detail) {
+    /**
+     * Parses a line of the log, returning null if it is not a valid outcome
+     */
+    @Nullable
+    public static Outcome parse(String line) {
+      try {
+        JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+        Status status = Status.valueOf(json.get("status").getAsString().toUpperCase(Locale.ROOT));
+        String detail = status == Status.SUCCEEDED ? string(json.get("newName")) : string(json.get("reason"));
+        return new Outcome(status, string(json.get("location")), detail);
+      } catch (JsonParseException | IllegalStateException | IllegalArgumentException | NullPointerException ex) {
+        return null;
+      }
+    }
+
+    private static String string(@Nullable JsonElement element) {
+      return element != null && !element.isJsonNull() ? element.getAsString() : "";
+    }
+  }
+
+  private final Path file;
+  private Writer writer;
+
+  private BatchRenameOutcomeLog(Path file, Writer writer) {
+    this.file = file;
+    this.writer = writer;
+  }
+
+  /**
+   * Creates or truncates the log file, creating its directory if needed
+   */
+  public static BatchRenameOutcomeLog create(Path file) throws IOException {
+    return create(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+  }
+
+  private static BatchRenameOutcomeLog create(Path file, OpenOption... options) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    return new BatchRenameOutcomeLog(file, Files.newBufferedWriter(file, StandardCharsets.UTF_8, options));
+  }
+
+  /**
+   * Names a run's log files after the time it started. The random suffix keeps runs started
+   * within the same second from writing to the same files.
+   */
+  public static String newRunId() {
+    return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + "-"
+        + UUID.randomUUID().toString().substring(0, 8);
+  }
+
+  /**
+   * Creates the log of an interactive run in the IDE's log directory, or returns null with a
+   * warning if it cannot be created. The log of another run is never overwritten.
+   *
+   * @param runId An id from {@link #newRunId()}
+   */
+  @Nullable
+  public static BatchRenameOutcomeLog createInLogDirectory(String runId) {
+    Path file = Path.of(PathManager.getLogPath(), "batch-renamer", "outcomes-" + runId + ".jsonl");
+    try {
+      return create(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    } catch (IOException ex) {
+      LOG.warn("Cannot create batch rename outcome log " + file, ex);
+      return null;
+    }
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  synchronized void write(Status status, String location, String detail) {
+    if (writer == null) return;
+
+    StringWriter line = new StringWriter();
+    try (JsonWriter json = new JsonWriter(line)) {
+      json.beginObject();
+      json.name("status").value(status.name().toLowerCase(Locale.ROOT));
+      json.name("location").value(location);
+      json.name(status == Status.SUCCEEDED ? "newName" : "reason").value(detail);
+      json.endObject();
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex); // Cannot happen with a StringWriter
+    }
+
+    try {
+      writer.write(line.toString());
+      writer.write('\n');
+    } catch (IOException ex) {
+      LOG.warn("Cannot write batch rename outcomes to " + file + ", outcome logging stopped", ex);
+      closeQuietly();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (writer != null) {
+      Writer open = writer;
+      writer = null;
+      open.close();
+    }
+  }
+
+  /**
+   * Closes a log that may be null, logging instead of throwing
+   */
+  public static void closeQuietly(@Nullable BatchRenameOutcomeLog log) {
+    if (log != null) {
+      log.closeQuietly();
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      close();
+    } catch (IOException ex) {
+      LOG.debug(ex);
+    }
+  }
+
+  /**
+   * Reads up to {@code max} outcomes accepted by {@code filter}, starting at byte {@code position}
+   * of a log file
+   *
+   * @return The position to continue reading from, or -1 once the end of the file has been reached
+   */
+  public static long read(Path file, long position, int max, Predicate<Outcome> filter, List<Outcome> into)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      channel.position(position);
+      InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+      ByteArrayOutputStream line = new ByteArrayOutputStream();
+      long next = position;
+      int found = 0;
+      int b;
+      while ((b = in.read()) != -1) {
+        next++;
+        if (b != '\n') {
+          line.write(b);
+          continue;
+        }
+
+        Outcome outcome = Outcome.parse(line.toString(StandardCharsets.UTF_8));
+        line.reset();
+        if (outcome != null && filter.test(outcome)) {
+          into.add(outcome);
+          if (++found == max) {
+            return next;
+          }
+        }
+      }
+      return -1;
+    }
+  }
+}
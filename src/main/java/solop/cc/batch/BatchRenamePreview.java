@@ -0,0 +1,158 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.refactoring.rename.RenameUtil;
+import com.intellij.refactoring.rename.UnresolvableCollisionUsageInfo;
+import com.intellij.usageView.UsageInfo;
+import solop.cc.model.RenameConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes what a batch rename would change without changing anything.
+ * <p>
+ * Chunks are resolved by {@link RenameTargetResolver} exactly as in a real run. Then the
+ * usages and conflicts of every target are searched for in its own non-blocking read
+ * action on the resolver's pool, by a {@link CombinedRename} of that target alone, so the
+ * renames it brings along, such as overriding methods, are counted as in a real run.
+ * Collisions between the renames of the batch are found by a {@link BatchConflictDetector}.
+ * Nothing is written, so no write action or document commit is needed and a preview can be
+ * repeated whenever the configuration changes.
+ * </p>
+ */
+public class BatchRenamePreview {
+  private final Project project;
+  private final FileLookupCache files;
+  private final BatchRenamePreviewResult result = new BatchRenamePreviewResult();
+  // Never receives edits, so coordinates resolve against the documents as they are
+  private final DocumentEditLog editLog = new DocumentEditLog();
+  private final BatchConflictDetector conflicts = new BatchConflictDetector();
+
+  /**
+   * What one target would change
+   */
+  private record TargetPreview(Map<String, Integer> fileChanges, int usages, List<String> conflicts, String error) {
+  }
+
+  /**
+   * @param project The project to preview the renames in
+   * @param files   Lookup cache for this run, with the base path of the config already set
+   */
+  public BatchRenamePreview(Project project, FileLookupCache files) {
+    this.project = project;
+    this.files = files;
+  }
+
+  /**
+   * Resolves one chunk of operations and searches for the usages of its targets
+   */
+  public void process(List<RenameConfig.RenameOperation> chunk, ProgressIndicator indicator) {
+    indicator.checkCanceled();
+    result.addOperations(chunk.size());
+
+    indicator.setText("Resolving rename targets...");
+    List<ResolvedRename> resolved = new RenameTargetResolver(project, files, editLog).resolve(chunk, indicator, result);
+    ReadAction.run(() -> {
+      for (ResolvedRename target : resolved) {
+        PsiNamedElement element = target.getTarget().getElement();
+        if (element != null) {
+          conflicts.add(element, target.getNewName(), target.getLocation());
+        }
+      }
+    });
+
+    indicator.setText("Finding usages...");
+    AtomicInteger searched = new AtomicInteger();
+    List<Future<TargetPreview>> futures = new ArrayList<>(resolved.size());
+    for (ResolvedRename target : resolved) {
+      futures.add(RenameTargetResolver.EXECUTOR.submit(() -> {
+        TargetPreview preview = ReadAction
+            .nonBlocking(() -> preview(target))
+            .inSmartMode(project)
+            .wrapProgress(indicator)
+            .expireWith(project)
+            .executeSynchronously();
+        searched.incrementAndGet();
+        return preview;
+      }));
+    }
+
+    try {
+      for (Future<TargetPreview> future : futures) {
+        TargetPreview preview = RenameTargetResolver.await(future, indicator,
+            () -> "Searched usages of " + searched.get() + " of " + resolved.size() + " symbols");
+        if (preview.error() != null) {
+          result.addError(preview.error());
+        } else {
+          result.addTarget(preview.fileChanges(), preview.usages(), preview.conflicts());
+        }
+      }
+    } catch (ProcessCanceledException ex) {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      throw ex;
+    }
+  }
+
+  /**
+   * Adds the conflicts between renames of different chunks and returns the result; call once
+   * after the last chunk
+   */
+  public BatchRenamePreviewResult finish() {
+    for (BatchConflictDetector.Conflict conflict : conflicts.findConflicts()) {
+      result.addConflict(conflict.getMessage());
+    }
+    return result;
+  }
+
+  /**
+   * Finds the usages one rename would rewrite and the conflicts the rename refactoring would
+   * report for it. Runs inside a read action.
+   */
+  private TargetPreview preview(ResolvedRename target) {
+    String location = target.getLocation();
+    PsiNamedElement element = target.getTarget().getElement();
+    if (element == null) {
+      return new TargetPreview(Map.of(), 0, List.of(), "Failed to rename at " + location + ": target is no longer valid");
+    }
+
+    String newName = target.getNewName();
+    if (!RenameUtil.isValidName(project, element, newName)) {
+      return new TargetPreview(Map.of(), 0, List.of(),
+          "Failed to rename at " + location + ": '" + newName + "' is not a valid identifier");
+    }
+
+    CombinedRename rename = new CombinedRename(project);
+    rename.add(element, newName);
+    CombinedRename.Usages found = rename.findUsages();
+
+    // The declaration itself is one change in the target's file
+    Map<String, Integer> fileChanges = new HashMap<>();
+    fileChanges.put(target.getFile().getPath(), 1);
+    int usageCount = 0;
+    for (UsageInfo usage : found.getUsages()) {
+      if (usage instanceof UnresolvableCollisionUsageInfo) continue;
+      VirtualFile file = usage.getVirtualFile();
+      if (file == null) continue;
+      fileChanges.merge(file.getPath(), 1, Integer::sum);
+      usageCount++;
+    }
+
+    List<String> conflictMessages = new ArrayList<>();
+    for (String description : found.getConflicts(0)) {
+      conflictMessages.add("Conflict at " + location + ": " + description);
+    }
+    return new TargetPreview(fileChanges, usageCount, conflictMessages, null);
+  }
+}
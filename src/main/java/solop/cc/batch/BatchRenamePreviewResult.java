@@ -0,0 +1,152 @@
+package solop.cc.batch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a dry run: what a batch rename would change, and what would stop it.
+ * <p>
+ * Like a {@link BatchRenameResult}, only counts and the first
+ * {@link BatchRenameResult#FAILURE_SAMPLE_SIZE} conflicts and errors are kept.
+ * </p>
+ */
+public class BatchRenamePreviewResult implements RenameOutcomeSink {
+  private static final int MAX_LISTED_FILES = 20;
+
+  private final Map<String, Integer> fileChanges = new TreeMap<>();
+  private final List<String> conflicts = new ArrayList<>();
+  private final List<String> errors = new ArrayList<>();
+  private int conflictCount;
+  private int errorCount;
+  private int totalOperations;
+  private int targets;
+  private int usages;
+
+  @Override
+  public void addOperations(int count) {
+    totalOperations += count;
+  }
+
+  void addTarget(Map<String, Integer> changes, int usageCount, List<String> targetConflicts) {
+    targets++;
+    usages += usageCount;
+    changes.forEach((path, count) -> fileChanges.merge(path, count, Integer::sum));
+    for (String conflict : targetConflicts) {
+      addConflict(conflict);
+    }
+  }
+
+  void addConflict(String message) {
+    conflictCount++;
+    sample(conflicts, message);
+  }
+
+  @Override
+  public void addFailure(String location, String reason) {
+    addError("Failed to rename at " + location + ": " + reason);
+  }
+
+  void addError(String message) {
+    errorCount++;
+    sample(errors, message);
+  }
+
+  private static void sample(List<String> sample, String message) {
+    if (sample.size() < BatchRenameResult.FAILURE_SAMPLE_SIZE) {
+      sample.add(message);
+    }
+  }
+
+  public int getTotalOperations() {
+    return totalOperations;
+  }
+
+  /**
+   * Number of symbols that would be renamed
+   */
+  public int getTargets() {
+    return targets;
+  }
+
+  /**
+   * Number of usages that would be rewritten, not counting the declarations
+   */
+  public int getUsages() {
+    return usages;
+  }
+
+  /**
+   * Number of changes per file path, declarations included
+   */
+  public Map<String, Integer> getFileChanges() {
+    return fileChanges;
+  }
+
+  /**
+   * Whether the batch would run without conflicts or errors
+   */
+  public boolean isClean() {
+    return conflictCount == 0 && errorCount == 0;
+  }
+
+  public int getConflictCount() {
+    return conflictCount;
+  }
+
+  /**
+   * Messages for the first {@link BatchRenameResult#FAILURE_SAMPLE_SIZE} conflicts
+   */
+  public List<String> getConflictSample() {
+    return conflicts;
+  }
+
+  public int getErrorCount() {
+    return errorCount;
+  }
+
+  /**
+   * Messages for the first {@link BatchRenameResult#FAILURE_SAMPLE_SIZE} errors
+   */
+  public List<String> getErrorSample() {
+    return errors;
+  }
+
+  /**
+   * Builds the text shown to the user once the dry run is complete
+   */
+  public String getSummary() {
+    StringBuilder message = new StringBuilder();
+    message.append(totalOperations).append(" operations would rename ").append(targets).append(" symbols and ")
+        .append(usages).append(" usages in ").append(fileChanges.size()).append(" files.\n\n");
+
+    appendList(message, "Conflicts", conflicts, conflictCount);
+    appendList(message, "Errors", errors, errorCount);
+
+    if (!fileChanges.isEmpty()) {
+      message.append("Most changed files:\n");
+      fileChanges.entrySet().stream()
+          .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+          .limit(MAX_LISTED_FILES)
+          .forEach(entry -> message.append("- ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n"));
+      if (fileChanges.size() > MAX_LISTED_FILES) {
+        message.append("... and ").append(fileChanges.size() - MAX_LISTED_FILES).append(" more files\n");
+      }
+    }
+    return message.toString();
+  }
+
+  private static void appendList(StringBuilder message, String title, List<String> lines, int count) {
+    if (count == 0) return;
+    message.append(title).append(" (").append(count).append("):\n");
+    for (String line : lines) {
+      message.append("- ").append(line).append("\n");
+    }
+    if (count > lines.size()) {
+      message.append("... and ").append(count - lines.size()).append(" more\n");
+    }
+    message.append("\n");
+  }
+}
@@ -0,0 +1,138 @@
+package solop.cc.batch;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes the outcome of a batch rename run as a machine-readable JSON report.
+ * <p>
+ * The report holds counts and a sample of the failures; the outcome of every single
+ * operation is streamed to a separate {@link BatchRenameOutcomeLog} during the run.
+ * </p>
+ */
+public class BatchRenameReport {
+  private BatchRenameReport() {
+  }
+
+  /**
+   * Writes a successful run's result
+   */
+  public static void write(BatchRenameResult result, Path reportFile) throws IOException {
+    try (JsonWriter json = open(reportFile)) {
+      json.beginObject();
+      json.name("status").value(result.getConflicts() > 0 ? "conflicts"
+          : result.getFailed() == 0 ? "success" : "partial");
+      json.name("totalOperations").value(result.getTotalOperations());
+      json.name("succeeded").value(result.getSucceeded());
+      json.name("failed").value(result.getFailed());
+      json.name("skipped").value(result.getSkippedOperations());
+      json.name("conflicts").value(result.getConflicts());
+
+      json.name("fileLookups").beginObject();
+      json.name("resolved").value(result.getFileLookupMisses());
+      json.name("cached").value(result.getFileLookupHits());
+      json.endObject();
+
+      // Every outcome is in the streamed outcome file; the report only samples the failures
+      if (result.getOutcomeFile() != null) {
+        json.name("outcomes").value(result.getOutcomeFile().toString());
+      }
+      json.name("failureSample").beginArray();
+      for (String line : result.getFailureSample()) {
+        json.value(line);
+      }
+      json.endArray();
+      json.endObject();
+    }
+  }
+
+  /**
+   * Writes the timings and counters of a run, durations in milliseconds
+   */
+  public static void writeMetrics(BatchRenameMetrics metrics, Path metricsFile) throws IOException {
+    try (JsonWriter json = open(metricsFile)) {
+      json.beginObject();
+      json.name("operations").value(metrics.getOperations());
+      json.name("durationMs").value(metrics.getDurationNanos() / 1e6);
+      json.name("operationsPerSecond").value(metrics.getOperationsPerSecond());
+      json.name("filesTouched").value(metrics.getFilesTouched());
+      json.name("usagesRewritten").value(metrics.getUsages());
+
+      json.name("phases").beginObject();
+      for (BatchRenameMetrics.Phase phase : BatchRenameMetrics.Phase.values()) {
+        json.name(phase.getKey()).beginObject();
+        json.name("samples").value(metrics.getSampleCount(phase));
+        json.name("totalMs").value(metrics.getTotalNanos(phase) / 1e6);
+        json.name("p50Ms").value(metrics.getPercentileNanos(phase, 0.5) / 1e6);
+        json.name("p99Ms").value(metrics.getPercentileNanos(phase, 0.99) / 1e6);
+        json.name("maxMs").value(metrics.getPercentileNanos(phase, 1) / 1e6);
+        json.endObject();
+      }
+      json.endObject();
+      json.endObject();
+    }
+  }
+
+  /**
+   * Writes a dry run's result
+   */
+  public static void writePreview(BatchRenamePreviewResult result, Path reportFile) throws IOException {
+    try (JsonWriter json = open(reportFile)) {
+      json.beginObject();
+      json.name("status").value(result.isClean() ? "clean" : "conflicts");
+      json.name("totalOperations").value(result.getTotalOperations());
+      json.name("symbols").value(result.getTargets());
+      json.name("usages").value(result.getUsages());
+
+      json.name("files").beginObject();
+      for (Map.Entry<String, Integer> entry : result.getFileChanges().entrySet()) {
+        json.name(entry.getKey()).value(entry.getValue());
+      }
+      json.endObject();
+
+      json.name("conflictCount").value(result.getConflictCount());
+      json.name("conflicts").beginArray();
+      for (String line : result.getConflictSample()) {
+        json.value(line);
+      }
+      json.endArray();
+
+      json.name("errorCount").value(result.getErrorCount());
+      json.name("errors").beginArray();
+      for (String line : result.getErrorSample()) {
+        json.value(line);
+      }
+      json.endArray();
+      json.endObject();
+    }
+  }
+
+  /**
+   * Writes the report of a run that could not be started or was aborted
+   */
+  public static void writeFailure(String message, Path reportFile) throws IOException {
+    try (JsonWriter json = open(reportFile)) {
+      json.beginObject();
+      json.name("status").value("failed");
+      json.name("message").value(message);
+      json.endObject();
+    }
+  }
+
+  private static JsonWriter open(Path reportFile) throws IOException {
+    Path parent = reportFile.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Writer writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8);
+    JsonWriter json = new JsonWriter(writer);
+    json.setIndent("  ");
+    return json;
+  }
+}
@@ -0,0 +1,186 @@
+package solop.cc.batch;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a batch rename run.
+ * <p>
+ * Only counts and the first {@link #FAILURE_SAMPLE_SIZE} failures are kept in memory, so a
+ * result stays small however many operations a run has. The outcome of every operation is
+ * streamed to a {@link BatchRenameOutcomeLog} if one is set.
+ * </p>
+ */
+public class BatchRenameResult implements RenameOutcomeSink {
+  public static final int FAILURE_SAMPLE_SIZE = 100;
+  private static final int SUMMARY_FAILURES = 10;
+
+  private final List<String> failureSample = new ArrayList<>();
+  private BatchRenameOutcomeLog outcomeLog;
+  private int succeeded;
+  private int failed;
+  private int totalOperations;
+  private int fileLookupHits;
+  private int fileLookupMisses;
+  private int skippedOperations;
+  private int conflicts;
+  private BatchRenameMetrics metrics;
+
+  /**
+   * Streams every outcome added from now on to the log; the caller closes it
+   */
+  public void setOutcomeLog(@Nullable BatchRenameOutcomeLog outcomeLog) {
+    this.outcomeLog = outcomeLog;
+  }
+
+  public synchronized void addSuccess(String location, String newName) {
+    succeeded++;
+    log(BatchRenameOutcomeLog.Status.SUCCEEDED, location, newName);
+  }
+
+  @Override
+  public synchronized void addFailure(String location, String reason) {
+    failed++;
+    sample("Failed to rename at " + location + ": " + reason);
+    log(BatchRenameOutcomeLog.Status.FAILED, location, reason);
+  }
+
+  /**
+   * Adds an operation that was not run because it conflicts with another one or with an existing name
+   */
+  public synchronized void addConflict(String location, String reason) {
+    conflicts++;
+    failed++;
+    sample("Conflict at " + location + ": " + reason);
+    log(BatchRenameOutcomeLog.Status.CONFLICT, location, reason);
+  }
+
+  private void sample(String message) {
+    if (failureSample.size() < FAILURE_SAMPLE_SIZE) {
+      failureSample.add(message);
+    }
+  }
+
+  private void log(BatchRenameOutcomeLog.Status status, String location, String detail) {
+    if (outcomeLog != null) {
+      outcomeLog.write(status, location, detail);
+    }
+  }
+
+  @Override
+  public synchronized void addOperations(int count) {
+    totalOperations += count;
+  }
+
+  void setSkippedOperations(int count) {
+    skippedOperations = count;
+  }
+
+  void setMetrics(BatchRenameMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  void setFileLookups(int hits, int misses) {
+    fileLookupHits = hits;
+    fileLookupMisses = misses;
+  }
+
+  public synchronized int getSucceeded() {
+    return succeeded;
+  }
+
+  /**
+   * Number of failed operations, conflicts included
+   */
+  public synchronized int getFailed() {
+    return failed;
+  }
+
+  /**
+   * Messages for the first {@link #FAILURE_SAMPLE_SIZE} failures
+   */
+  public synchronized List<String> getFailureSample() {
+    return List.copyOf(failureSample);
+  }
+
+  /**
+   * The file every outcome was streamed to, null if none was set
+   */
+  @Nullable
+  public Path getOutcomeFile() {
+    return outcomeLog != null ? outcomeLog.getFile() : null;
+  }
+
+  public synchronized int getTotalOperations() {
+    return totalOperations;
+  }
+
+  /**
+   * Number of operations skipped because an interrupted earlier run had completed them
+   */
+  public int getSkippedOperations() {
+    return skippedOperations;
+  }
+
+  /**
+   * Number of conflicts found before the run; if there are any, nothing was renamed
+   */
+  public synchronized int getConflicts() {
+    return conflicts;
+  }
+
+  /**
+   * Timings and counters of the run, null for results that did not come from a run
+   */
+  @Nullable
+  public BatchRenameMetrics getMetrics() {
+    return metrics;
+  }
+
+  public int getFileLookupHits() {
+    return fileLookupHits;
+  }
+
+  public int getFileLookupMisses() {
+    return fileLookupMisses;
+  }
+
+  /**
+   * Builds the text shown to the user once the run is complete
+   */
+  public synchronized String getSummary() {
+    StringBuilder message = new StringBuilder();
+    message.append("Completed ").append(succeeded).append(" out of ").append(totalOperations).append(" operations.\n");
+    if (skippedOperations > 0) {
+      message.append("Resumed after ").append(skippedOperations).append(" operations completed by an earlier run.\n");
+    }
+    if (conflicts > 0) {
+      message.append("Nothing was renamed because ").append(conflicts)
+          .append(" operations conflict with each other or with existing names.\n");
+    }
+    if (fileLookupHits + fileLookupMisses > 0) {
+      message.append("File lookups: ").append(fileLookupMisses).append(" resolved, ")
+          .append(fileLookupHits).append(" served from cache.\n");
+    }
+    if (metrics != null) {
+      message.append(metrics.getSummary());
+    }
+    message.append("\n");
+
+    if (failed > 0) {
+      int shown = Math.min(failureSample.size(), SUMMARY_FAILURES);
+      message.append("Errors (").append(failed).append(shown < failed ? ", first " + shown + " shown" : "").append("):\n");
+      for (String failure : failureSample.subList(0, shown)) {
+        message.append("- ").append(failure).append("\n");
+      }
+    }
+    Path outcomeFile = getOutcomeFile();
+    if (outcomeFile != null) {
+      message.append("\nThe outcome of every operation is in ").append(outcomeFile).append("\n");
+    }
+    return message.toString();
+  }
+}
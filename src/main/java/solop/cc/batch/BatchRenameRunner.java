@@ -0,0 +1,204 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.Nullable;
+import solop.cc.model.RenameConfig;
+import solop.cc.model.RenameConfigReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Runs a whole rename configuration through a {@link BatchRenameEngine}.
+ * <p>
+ * Shared by the batch rename action and the headless command-line runner. Problems with
+ * the configuration itself, such as a missing base directory or malformed JSON, are
+ * reported as {@link IllegalArgumentException}s; problems with single operations end up
+ * in the returned result.
+ * </p>
+ * <p>
+ * Runs given a {@link ResumeHandler} are checkpointed in a {@link BatchRenameJournal}. If
+ * an earlier run of the same configuration in the same project was interrupted, the
+ * handler decides whether to continue after its last completed chunk or to start over.
+ * </p>
+ * <p>
+ * A configuration can also be previewed as a dry run through {@link BatchRenamePreview},
+ * which reports what the run would change without writing anything.
+ * </p>
+ */
+public class BatchRenameRunner {
+  private static final Logger LOG = Logger.getInstance(BatchRenameRunner.class);
+
+  /**
+   * Opens a fresh reader over a configuration; streamed configurations are read more than once
+   */
+  public interface ConfigSource {
+    Reader open() throws IOException;
+  }
+
+  /**
+   * Decides whether to resume an interrupted run. Called on the run's background thread.
+   */
+  public interface ResumeHandler {
+    boolean shouldResume(int completedOperations, int totalOperations);
+  }
+
+  private BatchRenameRunner() {
+  }
+
+  /**
+   * Runs a configuration that is already in memory, without checkpoints
+   */
+  public static BatchRenameResult run(Project project, RenameConfig config, ProgressIndicator indicator) {
+    FileLookupCache files = createFileLookupCache(project, config.getBasePath());
+    BatchRenameEngine engine = new BatchRenameEngine(project, files);
+    engine.setChunkSize(config.getChunkSize());
+    return engine.run(config.getOperations(), indicator);
+  }
+
+  /**
+   * Runs a configuration that is already in memory, checkpointing every slice
+   *
+   * @param outcomeLog Receives the outcome of every operation, if given
+   */
+  public static BatchRenameResult run(Project project, RenameConfig config, ProgressIndicator indicator,
+                                      ResumeHandler resumeHandler, @Nullable BatchRenameOutcomeLog outcomeLog) {
+    FileLookupCache files = createFileLookupCache(project, config.getBasePath());
+    BatchRenameEngine engine = new BatchRenameEngine(project, files);
+    engine.setChunkSize(config.getChunkSize());
+    engine.setOutcomeLog(outcomeLog);
+    try {
+      startJournal(engine, project, BatchRenameJournal.hash(config), config.getOperations().size(), resumeHandler);
+      BatchRenameResult result = engine.run(config.getOperations(), indicator);
+      engine.completeJournal();
+      return result;
+    } finally {
+      Disposer.dispose(engine);
+    }
+  }
+
+  /**
+   * Streams a configuration in chunks, without checkpoints
+   */
+  public static BatchRenameResult run(Project project, ConfigSource source, ProgressIndicator indicator)
+      throws IOException {
+    return run(project, source, indicator, null, null);
+  }
+
+  /**
+   * Streams a configuration in chunks. The source is read once to validate it and find the
+   * base path and operation count, once more for the pre-flight conflict check unless the run
+   * is resumed, and once to process the operations. Every slice is checkpointed if a resume
+   * handler is given, and the outcome of every operation is streamed to the outcome log if one
+   * is given.
+   */
+  public static BatchRenameResult run(Project project, ConfigSource source, ProgressIndicator indicator,
+                                      @Nullable ResumeHandler resumeHandler, @Nullable BatchRenameOutcomeLog outcomeLog)
+      throws IOException {
+    indicator.setText("Reading rename configuration...");
+
+    RenameConfigReader.Summary summary;
+    MessageDigest digest = BatchRenameJournal.newDigest();
+    try (Reader reader = BatchRenameJournal.digesting(source.open(), digest)) {
+      summary = RenameConfigReader.scan(reader);
+    }
+
+    FileLookupCache files = createFileLookupCache(project, summary.getBasePath());
+    BatchRenameEngine engine = new BatchRenameEngine(project, files);
+    engine.setOutcomeLog(outcomeLog);
+    try {
+      if (resumeHandler != null) {
+        startJournal(engine, project, HexFormat.of().formatHex(digest.digest()), summary.getOperationCount(),
+            resumeHandler);
+      }
+      engine.setExpectedOperations(summary.getOperationCount());
+      if (!engine.isResuming()) {
+        try (Reader reader = source.open()) {
+          RenameConfigReader.read(reader, summary.getChunkSize(), chunk -> engine.checkConflicts(chunk, indicator));
+        }
+        if (!engine.reportConflicts()) {
+          engine.completeJournal();
+          return engine.getResult();
+        }
+      }
+      try (Reader reader = source.open()) {
+        RenameConfigReader.read(reader, summary.getChunkSize(), chunk -> engine.process(chunk, indicator));
+      }
+      engine.completeJournal();
+      // Finishes the metrics, whose span ends when the engine is disposed
+      return engine.getResult();
+    } finally {
+      Disposer.dispose(engine);
+    }
+  }
+
+  /**
+   * Previews a configuration that is already in memory
+   */
+  public static BatchRenamePreviewResult preview(Project project, RenameConfig config, ProgressIndicator indicator) {
+    BatchRenamePreview preview = new BatchRenamePreview(project, createFileLookupCache(project, config.getBasePath()));
+    List<RenameConfig.RenameOperation> operations = config.getOperations();
+    int chunkSize = config.getChunkSize();
+    for (int from = 0; from < operations.size(); from += chunkSize) {
+      preview.process(operations.subList(from, Math.min(from + chunkSize, operations.size())), indicator);
+    }
+    return preview.finish();
+  }
+
+  /**
+   * Previews a configuration streamed in chunks; the source is read twice like in {@link #run}
+   */
+  public static BatchRenamePreviewResult preview(Project project, ConfigSource source, ProgressIndicator indicator)
+      throws IOException {
+    indicator.setText("Reading rename configuration...");
+
+    RenameConfigReader.Summary summary;
+    try (Reader reader = source.open()) {
+      summary = RenameConfigReader.scan(reader);
+    }
+
+    BatchRenamePreview preview = new BatchRenamePreview(project, createFileLookupCache(project, summary.getBasePath()));
+    try (Reader reader = source.open()) {
+      RenameConfigReader.read(reader, summary.getChunkSize(), chunk -> preview.process(chunk, indicator));
+    }
+    return preview.finish();
+  }
+
+  /**
+   * Opens the configuration's journal and asks whether to resume from it. If the journal
+   * cannot be used, the run goes ahead without checkpoints.
+   */
+  private static void startJournal(BatchRenameEngine engine, Project project, String configHash, int totalOperations,
+                                   ResumeHandler resumeHandler) {
+    BatchRenameJournal journal;
+    try {
+      journal = BatchRenameJournal.open(project, configHash);
+    } catch (IOException ex) {
+      LOG.warn("Cannot open batch rename journal, running without checkpoints", ex);
+      return;
+    }
+
+    int completed = journal.getCommittedOperations();
+    boolean resume = completed > 0 && completed < totalOperations
+        && resumeHandler.shouldResume(completed, totalOperations);
+    try {
+      engine.setJournal(journal, resume);
+    } catch (IOException ex) {
+      LOG.warn("Cannot reset or resume batch rename journal, running without checkpoints", ex);
+    }
+  }
+
+  private static FileLookupCache createFileLookupCache(Project project, @Nullable String basePath) {
+    FileLookupCache files = new FileLookupCache(project);
+    if (!files.setBasePath(basePath)) {
+      throw new IllegalArgumentException("Base path not found or not a directory: " + basePath);
+    }
+    return files;
+  }
+}
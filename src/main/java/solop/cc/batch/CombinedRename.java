@@ -0,0 +1,396 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.util.PsiUtilCore;
+import com.intellij.refactoring.rename.RenamePsiElementProcessor;
+import com.intellij.refactoring.rename.RenameProcessor;
+import com.intellij.refactoring.rename.RenameUtil;
+import com.intellij.usageView.UsageInfo;
+import com.intellij.util.containers.MultiMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Renames many elements with a single {@link RenameProcessor}.
+ * <p>
+ * All elements are added to one processor, so usages are found in one combined
+ * reference search and rewritten in one refactoring transaction instead of one
+ * search per symbol. If the combined refactoring fails, the elements are renamed
+ * one by one so the failure can be attributed to the symbols that caused it.
+ * </p>
+ * <p>
+ * Before the search, every element brings along the renames its rename processor prepares,
+ * such as overriding methods or accessors, as {@link RenameProcessor#run()} would. The
+ * usages found are checked for the conflicts the rename refactoring would report, and an
+ * element whose rename has conflicts is not renamed; the search is repeated per element to
+ * find out which ones.
+ * </p>
+ * <p>
+ * The search and the write are split: {@link #findUsages()} runs in a read action on a
+ * background thread, and {@link #run(Usages)} only rewrites what was found, so the write
+ * command holding the EDT does not search at all. Usages that went stale in between are
+ * searched for again inside the write.
+ * </p>
+ * <p>
+ * With {@link BatchRenameMetrics}, the usage search and the write of every refactoring are
+ * timed separately, and the usages it rewrites are counted.
+ * </p>
+ */
+public class CombinedRename {
+  private final Project project;
+  private final List<PsiNamedElement> elements = new ArrayList<>();
+  private final List<String> newNames = new ArrayList<>();
+  private final Set<VirtualFile> touchedFiles = new LinkedHashSet<>();
+  private BatchRenameMetrics metrics;
+
+  /**
+   * Usages of all added elements, found ahead of the write that renames them
+   */
+  public static final class Usages {
+    // Renames the elements at these indices, those without conflicts; null if there are none
+    private final SplitRenameProcessor processor;
+    private final List<Integer> indices;
+    private final UsageInfo[] usages;
+    private final List<List<String>> conflicts;
+    private final long searchNanos;
+
+    private Usages(SplitRenameProcessor processor, List<Integer> indices, UsageInfo[] usages,
+                   List<List<String>> conflicts, long searchNanos) {
+      this.processor = processor;
+      this.indices = indices;
+      this.usages = usages;
+      this.conflicts = conflicts;
+      this.searchNanos = searchNanos;
+    }
+
+    public int size() {
+      return usages.length;
+    }
+
+    /**
+     * The usages found; with a single element, also those of a rename that has conflicts
+     */
+    UsageInfo[] getUsages() {
+      return usages;
+    }
+
+    /**
+     * The conflicts that keep the element at an index from being renamed, empty if there are none
+     */
+    public List<String> getConflicts(int index) {
+      return conflicts.get(index);
+    }
+
+    /**
+     * How long the search took; it is up to the caller to record it once its read action has completed
+     */
+    public long getSearchNanos() {
+      return searchNanos;
+    }
+  }
+
+  public CombinedRename(Project project) {
+    this.project = project;
+  }
+
+  public void add(PsiNamedElement element, String newName) {
+    elements.add(element);
+    newNames.add(newName);
+  }
+
+  public void setMetrics(BatchRenameMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public boolean isEmpty() {
+    return elements.isEmpty();
+  }
+
+  public int size() {
+    return elements.size();
+  }
+
+  /**
+   * Files that were written to by {@link #run(Usages)}: those of the renamed declarations and of their usages
+   */
+  public Set<VirtualFile> getTouchedFiles() {
+    return touchedFiles;
+  }
+
+  /**
+   * Searches for the usages of all added elements without changing anything.
+   * Must be called in a read action, and only once elements were added. The read action
+   * may be restarted, so the search is not recorded in the metrics here.
+   */
+  public Usages findUsages() {
+    long start = System.nanoTime();
+    List<List<String>> conflicts = new ArrayList<>(Collections.nCopies(elements.size(), List.of()));
+    List<Integer> indices = allIndices();
+    SplitRenameProcessor processor = newProcessor(indices);
+    UsageInfo[] usages = processor.findUsagesUntimed();
+    List<String> found = findConflicts(processor, usages);
+
+    if (!found.isEmpty() && elements.size() > 1) {
+      // Find out whose renames conflict, then search again for the others
+      indices = new ArrayList<>();
+      for (int i = 0; i < elements.size(); i++) {
+        SplitRenameProcessor single = newProcessor(List.of(i));
+        List<String> own = findConflicts(single, single.findUsagesUntimed());
+        if (own.isEmpty()) {
+          indices.add(i);
+        } else {
+          conflicts.set(i, own);
+        }
+      }
+      if (!indices.isEmpty()) {
+        processor = newProcessor(indices);
+        usages = processor.findUsagesUntimed();
+        found = findConflicts(processor, usages);
+      }
+    }
+    if (!found.isEmpty()) {
+      // Only conflicting together, or a single element with conflicts
+      for (int i : indices) {
+        conflicts.set(i, found);
+      }
+      indices = List.of();
+      processor = null;
+    }
+    return new Usages(processor, indices, usages, conflicts, System.nanoTime() - start);
+  }
+
+  /**
+   * Performs all added renames with usages found earlier by {@link #findUsages()}.
+   * Must be called from a write command.
+   *
+   * @return One entry per added element, in the order they were added: null if the
+   * element was renamed, otherwise the reason it was not
+   */
+  public String[] run(Usages usages) {
+    String[] errors = new String[elements.size()];
+    for (int i = 0; i < errors.length; i++) {
+      if (!usages.getConflicts(i).isEmpty()) {
+        errors[i] = describe(usages.getConflicts(i));
+      }
+    }
+    if (usages.processor == null) return errors;
+
+    try {
+      UsageInfo[] found = usages.usages;
+      if (!isValid(usages.indices, found)) {
+        // Something was edited since the search; usages are looked up again in this write
+        found = usages.processor.findUsages();
+        if (!findConflicts(usages.processor, found).isEmpty()) {
+          return retryOneByOne(errors, usages.indices, null);
+        }
+      }
+      usages.processor.write(found);
+      return errors;
+    } catch (ProcessCanceledException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      return retryOneByOne(errors, usages.indices, ex);
+    }
+  }
+
+  private boolean isValid(List<Integer> indices, UsageInfo[] usages) {
+    for (int i : indices) {
+      if (!elements.get(i).isValid()) return false;
+    }
+    for (UsageInfo usage : usages) {
+      if (!usage.isValid()) return false;
+    }
+    return true;
+  }
+
+  /**
+   * The combined refactoring failed or now has conflicts, so each element is renamed on its
+   * own to find the culprits
+   *
+   * @param cause Why the combined refactoring failed, or null if it has conflicts
+   */
+  private String[] retryOneByOne(String[] errors, List<Integer> indices, @Nullable Exception cause) {
+    if (indices.size() == 1 && cause != null) {
+      errors[indices.get(0)] = describe(cause);
+      return errors;
+    }
+
+    for (int i : indices) {
+      PsiNamedElement element = elements.get(i);
+      if (!element.isValid()) {
+        errors[i] = "target is no longer valid";
+        continue;
+      }
+      if (Objects.equals(element.getName(), newNames.get(i))) {
+        continue; // Already applied before the combined refactoring failed
+      }
+
+      try {
+        // Not run(), which must not be started inside the write command that calls this
+        SplitRenameProcessor processor = newProcessor(List.of(i));
+        UsageInfo[] found = processor.findUsages();
+        List<String> conflicts = findConflicts(processor, found);
+        if (conflicts.isEmpty()) {
+          processor.write(found);
+        } else {
+          errors[i] = describe(conflicts);
+        }
+      } catch (ProcessCanceledException ex) {
+        throw ex;
+      } catch (Exception ex) {
+        errors[i] = describe(ex);
+      }
+    }
+    return errors;
+  }
+
+  /**
+   * The reason a rename failed, never null, as null means it succeeded
+   */
+  private static String describe(Exception ex) {
+    return Objects.requireNonNullElse(ex.getMessage(), ex.getClass().getSimpleName());
+  }
+
+  private static String describe(List<String> conflicts) {
+    return "conflicts: " + String.join("; ", conflicts);
+  }
+
+  /**
+   * The conflicts the rename refactoring would show before renaming, as plain text: usages
+   * that would no longer resolve, and clashes with existing names. Must be called in a read action.
+   */
+  private static List<String> findConflicts(SplitRenameProcessor processor, UsageInfo[] usages) {
+    MultiMap<PsiElement, String> conflicts = new MultiMap<>();
+    RenameUtil.addConflictDescriptions(usages, conflicts);
+    processor.allRenames.forEach((element, newName) -> RenamePsiElementProcessor.forElement(element)
+        .findExistingNameConflicts(element, newName, conflicts, processor.allRenames));
+
+    List<String> descriptions = new ArrayList<>();
+    for (String description : conflicts.values()) {
+      descriptions.add(StringUtil.removeHtmlTags(description));
+    }
+    return descriptions;
+  }
+
+  private List<Integer> allIndices() {
+    List<Integer> indices = new ArrayList<>(elements.size());
+    for (int i = 0; i < elements.size(); i++) {
+      indices.add(i);
+    }
+    return indices;
+  }
+
+  /**
+   * A processor for the elements at the given indices and the renames they bring along.
+   * Must be called in a read action.
+   */
+  private SplitRenameProcessor newProcessor(List<Integer> indices) {
+    PsiNamedElement primary = elements.get(indices.get(0));
+    SplitRenameProcessor processor = new SplitRenameProcessor(project, primary, newNames.get(indices.get(0)), this);
+
+    // All targets go in first, so preparing one sees the others as renamed already
+    LinkedHashMap<PsiElement, String> allRenames = new LinkedHashMap<>();
+    for (int i : indices) {
+      allRenames.put(elements.get(i), newNames.get(i));
+    }
+    for (int i : indices) {
+      processor.prepareRenaming(elements.get(i), newNames.get(i), allRenames);
+    }
+    // A companion rename never overrides the name a target was given explicitly
+    for (int i : indices) {
+      allRenames.put(elements.get(i), newNames.get(i));
+    }
+
+    allRenames.forEach((element, newName) -> {
+      if (element != primary) {
+        processor.addElement(element, newName);
+      }
+    });
+    processor.allRenames = allRenames;
+    return processor;
+  }
+
+  /**
+   * A rename processor whose search and write can be run separately, timed and recording the files it touches
+   */
+  private static class SplitRenameProcessor extends RenameProcessor {
+    private final CombinedRename owner;
+    // What the processor renames, the added elements and those they bring along
+    private Map<PsiElement, String> allRenames = Map.of();
+
+    SplitRenameProcessor(Project project, PsiNamedElement element, String newName, CombinedRename owner) {
+      super(project, element, newName, false, false);
+      this.owner = owner;
+    }
+
+    @Override
+    public UsageInfo @NotNull [] findUsages() {
+      if (owner.metrics == null) {
+        return super.findUsages();
+      }
+      try (BatchRenameMetrics.Timer ignored = owner.metrics.time(BatchRenameMetrics.Phase.USAGE_SEARCH)) {
+        return super.findUsages();
+      }
+    }
+
+    UsageInfo[] findUsagesUntimed() {
+      return super.findUsages();
+    }
+
+    @Override
+    public void performRefactoring(UsageInfo @NotNull [] usages) {
+      for (PsiElement element : getElements()) {
+        VirtualFile file = PsiUtilCore.getVirtualFile(element);
+        if (file != null) {
+          owner.touchedFiles.add(file);
+        }
+      }
+      for (UsageInfo usage : usages) {
+        VirtualFile file = usage.getVirtualFile();
+        if (file != null) {
+          owner.touchedFiles.add(file);
+        }
+      }
+
+      BatchRenameMetrics metrics = owner.metrics;
+      if (metrics == null) {
+        super.performRefactoring(usages);
+        return;
+      }
+      try (BatchRenameMetrics.Timer ignored = metrics.time(BatchRenameMetrics.Phase.WRITE)) {
+        super.performRefactoring(usages);
+      }
+      metrics.addUsages(usages.length);
+      for (UsageInfo usage : usages) {
+        VirtualFile file = usage.getVirtualFile();
+        if (file != null) {
+          metrics.addTouchedFile(file.getPath());
+        }
+      }
+    }
+
+    /**
+     * Writes the renames the way {@link RenameProcessor#run()} does once it has searched and found no
+     * conflicts, so the usages must have been checked with {@link #findConflicts}. They go through
+     * {@link #execute}, which runs the refactoring in its transaction with listeners, local history
+     * and refactoring events. Inside a write command, that command is reused.
+     */
+    void write(UsageInfo[] usages) {
+      execute(usages);
+    }
+  }
+}
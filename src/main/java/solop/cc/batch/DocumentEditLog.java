@@ -0,0 +1,288 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the edits made to documents during a batch run.
+ * <p>
+ * Operations in a config refer to the documents as they were before the run. Once an
+ * earlier chunk has renamed symbols in a file, its line/column coordinates no longer
+ * match the document, so offsets are computed against the original line starts and
+ * then shifted by every edit recorded since. Offsets exported with a config are original
+ * offsets already, and are only shifted.
+ * </p>
+ * <p>
+ * For resumable runs, the edits can be taken out in portions to be journaled and restored
+ * from the journal into a later run.
+ * </p>
+ */
+class DocumentEditLog implements DocumentListener {
+  /**
+   * Returned by {@link #offsetOf(Document, int, int)} for a line the original document did not have
+   */
+  static final int LINE_PAST_END = -1;
+  /**
+   * Returned by {@link #offsetOf(Document, int, int)} for a column past the end of its line in the original document
+   */
+  static final int COLUMN_PAST_END = -2;
+
+  private final Map<Document, FileEdits> edits = new ConcurrentHashMap<>();
+
+  @Override
+  public void beforeDocumentChange(@NotNull DocumentEvent event) {
+    edits.computeIfAbsent(event.getDocument(), FileEdits::new);
+  }
+
+  @Override
+  public void documentChanged(@NotNull DocumentEvent event) {
+    FileEdits fileEdits = edits.get(event.getDocument());
+    if (fileEdits != null) {
+      fileEdits.add(event.getOffset(), event.getOldLength(), event.getNewLength(),
+          StringUtil.countNewLines(event.getOldFragment()) + StringUtil.countNewLines(event.getNewFragment()));
+    }
+  }
+
+  /**
+   * Returns the current offset of a position given in the document's original coordinates,
+   * or {@link #LINE_PAST_END} or {@link #COLUMN_PAST_END} if the original document had no
+   * such position
+   */
+  int offsetOf(Document document, int line, int column) {
+    FileEdits fileEdits = edits.get(document);
+    if (fileEdits == null) {
+      if (line >= document.getLineCount()) return LINE_PAST_END;
+      int lineStart = document.getLineStartOffset(line);
+      return column < document.getLineEndOffset(line) - lineStart ? lineStart + column : COLUMN_PAST_END;
+    }
+    return fileEdits.offsetOf(line, column);
+  }
+
+  /**
+   * Returns the current offset of an offset in the original document, or -1 if it was past
+   * the end of the original document
+   */
+  int offsetOf(Document document, int originalOffset) {
+    FileEdits fileEdits = edits.get(document);
+    if (fileEdits != null && originalOffset > fileEdits.originalLength) return -1;
+    int offset = fileEdits == null ? originalOffset : fileEdits.shift(originalOffset);
+    // Edits shift the end of the document along with everything after them
+    return offset <= document.getTextLength() ? offset : -1;
+  }
+
+  /**
+   * Returns the edits recorded since the last call, per document, as flat
+   * {offset, old length, new length, line breaks} quadruplets, where line breaks counts
+   * those the edit removed and inserted
+   */
+  Map<Document, int[]> takeNewEdits() {
+    Map<Document, int[]> result = new LinkedHashMap<>();
+    edits.forEach((document, fileEdits) -> {
+      int[] newEdits = fileEdits.takeNew();
+      if (newEdits.length > 0) {
+        result.put(document, newEdits);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Whether {@link #restore} can recover the original line starts of a document from these
+   * edits, which it can only if none of them removed or inserted a line break. Edits
+   * journaled without a line break count are taken to have none, as renames insert none.
+   */
+  static boolean canRestore(List<int[]> previousEdits) {
+    for (int[] edit : previousEdits) {
+      if (edit.length > 3 && edit[3] != 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Restores the edits an interrupted run made to a document, which now contains them.
+   * The edits must be accepted by {@link #canRestore}: as no line break was touched, the
+   * original line starts are the current ones mapped back through the edits.
+   */
+  void restore(Document document, List<int[]> previousEdits) {
+    int originalLength = document.getTextLength();
+    for (int[] edit : previousEdits) {
+      originalLength -= edit[2] - edit[1];
+    }
+    FileEdits fileEdits = new FileEdits(new int[document.getLineCount()], originalLength);
+    for (int[] edit : previousEdits) {
+      fileEdits.add(edit[0], edit[1], edit[2], edit.length > 3 ? edit[3] : 0);
+    }
+    for (int line = 0; line < fileEdits.originalLineStarts.length; line++) {
+      fileEdits.originalLineStarts[line] = fileEdits.firstMappedTo(document.getLineStartOffset(line), false);
+    }
+    fileEdits.taken = fileEdits.size;
+    edits.put(document, fileEdits);
+  }
+
+  /**
+   * Edits of one document, and the mapping from its original offsets to the current ones.
+   * <p>
+   * The mapping is kept as pieces sorted by their first original offset, each with the
+   * delta of all edits before it, so an offset is shifted with a binary search. An offset
+   * inside a replaced range, e.g. an identifier that was already renamed, maps to the start
+   * of the replacement; such ranges are pieces of their own that map to a single offset.
+   * </p>
+   */
+  private static class FileEdits {
+    private final int[] originalLineStarts;
+    private final int originalLength;
+    // Recorded edits as {offset, old length, new length, line breaks}, for the journal
+    private int[] recorded = new int[64];
+    private int size;
+    private int taken;
+    // The pieces of the mapping; offsets before the first piece are unchanged
+    private int[] pieceStarts = new int[16];
+    private int[] pieceDeltas = new int[16];
+    private boolean[] pieceReplaced = new boolean[16];
+    private int pieces;
+
+    FileEdits(Document original) {
+      this(lineStarts(original), original.getTextLength());
+    }
+
+    FileEdits(int[] originalLineStarts, int originalLength) {
+      this.originalLineStarts = originalLineStarts;
+      this.originalLength = originalLength;
+    }
+
+    private static int[] lineStarts(Document document) {
+      int[] lineStarts = new int[document.getLineCount()];
+      for (int i = 0; i < lineStarts.length; i++) {
+        lineStarts[i] = document.getLineStartOffset(i);
+      }
+      return lineStarts;
+    }
+
+    /**
+     * Records an edit given in the coordinates of the document as it was right before it
+     */
+    void add(int offset, int oldLength, int newLength, int lineBreaks) {
+      if (size * 4 == recorded.length) {
+        recorded = Arrays.copyOf(recorded, recorded.length * 2);
+      }
+      recorded[size * 4] = offset;
+      recorded[size * 4 + 1] = oldLength;
+      recorded[size * 4 + 2] = newLength;
+      recorded[size * 4 + 3] = lineBreaks;
+      size++;
+
+      // Original offsets mapped into the replaced range, and those mapped to its end or after
+      int replacedFrom = firstMappedTo(offset, true);
+      int shiftedFrom = firstMappedTo(offset + oldLength, false);
+      if (replacedFrom < shiftedFrom) {
+        int at = split(replacedFrom);
+        split(shiftedFrom);
+        int end = pieceIndex(shiftedFrom - 1) + 1;
+        // One piece for the whole range, covering the pieces inside it
+        System.arraycopy(pieceStarts, end, pieceStarts, at + 1, pieces - end);
+        System.arraycopy(pieceDeltas, end, pieceDeltas, at + 1, pieces - end);
+        System.arraycopy(pieceReplaced, end, pieceReplaced, at + 1, pieces - end);
+        pieces -= end - at - 1;
+        pieceDeltas[at] = offset - replacedFrom;
+        pieceReplaced[at] = true;
+      }
+      if (newLength != oldLength) {
+        for (int i = split(shiftedFrom); i < pieces; i++) {
+          pieceDeltas[i] += newLength - oldLength;
+        }
+      }
+    }
+
+    int[] takeNew() {
+      int[] result = Arrays.copyOfRange(recorded, taken * 4, size * 4);
+      taken = size;
+      return result;
+    }
+
+    int offsetOf(int line, int column) {
+      if (line >= originalLineStarts.length) return LINE_PAST_END;
+      // Documents separate lines with a single '\n'
+      int lineEnd = line + 1 < originalLineStarts.length ? originalLineStarts[line + 1] - 1 : originalLength;
+      if (column >= lineEnd - originalLineStarts[line]) return COLUMN_PAST_END;
+      return shift(originalLineStarts[line] + column);
+    }
+
+    /**
+     * The current offset of an original one
+     */
+    int shift(int offset) {
+      int piece = pieceIndex(offset);
+      if (piece < 0) return offset;
+      return (pieceReplaced[piece] ? pieceStarts[piece] : offset) + pieceDeltas[piece];
+    }
+
+    /**
+     * The first original offset, up to one past the original end, that now maps past
+     * {@code offset}, or to it or past it if not {@code strict}
+     */
+    int firstMappedTo(int offset, boolean strict) {
+      int low = 0;
+      int high = originalLength + 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        int shifted = shift(middle);
+        if (strict ? shifted > offset : shifted >= offset) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Index of the last piece starting at or before an original offset, or -1 if there is none
+     */
+    private int pieceIndex(int offset) {
+      int low = 0;
+      int high = pieces - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (pieceStarts[middle] <= offset) {
+          low = middle + 1;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return low - 1;
+    }
+
+    /**
+     * Makes a piece start at an original offset, mapping it as before, and returns its index
+     */
+    private int split(int offset) {
+      int piece = pieceIndex(offset);
+      if (piece >= 0 && pieceStarts[piece] == offset) return piece;
+
+      if (pieces == pieceStarts.length) {
+        pieceStarts = Arrays.copyOf(pieceStarts, pieces * 2);
+        pieceDeltas = Arrays.copyOf(pieceDeltas, pieces * 2);
+        pieceReplaced = Arrays.copyOf(pieceReplaced, pieces * 2);
+      }
+      int at = piece + 1;
+      System.arraycopy(pieceStarts, at, pieceStarts, at + 1, pieces - at);
+      System.arraycopy(pieceDeltas, at, pieceDeltas, at + 1, pieces - at);
+      System.arraycopy(pieceReplaced, at, pieceReplaced, at + 1, pieces - at);
+      pieces++;
+      pieceStarts[at] = offset;
+      pieceReplaced[at] = piece >= 0 && pieceReplaced[piece];
+      // A replaced piece keeps mapping to its first offset's target
+      pieceDeltas[at] = piece < 0 ? 0 : pieceReplaced[piece] ? pieceStarts[piece] + pieceDeltas[piece] - offset : pieceDeltas[piece];
+      return at;
+    }
+  }
+}
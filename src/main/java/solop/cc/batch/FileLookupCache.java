@@ -0,0 +1,211 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-run cache for the file lookups of a batch rename.
+ * <p>
+ * Path to {@link VirtualFile} resolution is cached for the whole run, so every distinct
+ * path in a config is looked up once no matter how many operations refer to it. The
+ * {@link PsiFile} and {@link Document} of recently used files are kept in a small LRU
+ * cache, so consecutive chunks on the same file do not look them up again without
+ * pinning the PSI of every file in the run.
+ * </p>
+ */
+public class FileLookupCache {
+  private static final int MAX_CACHED_FILES = 256;
+
+  private final Project project;
+  private final Map<String, Optional<VirtualFile>> files = new ConcurrentHashMap<>();
+  private final Map<VirtualFile, FileEntry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<VirtualFile, FileEntry> eldest) {
+      return size() > MAX_CACHED_FILES;
+    }
+  };
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private VirtualFile projectDir;
+  private boolean projectDirGuessed;
+  private VirtualFile baseDir;
+
+  public FileLookupCache(Project project) {
+    this.project = project;
+  }
+
+  /**
+   * A file together with its PSI and document
+   */
+  public static class FileEntry {
+    private final VirtualFile file;
+    private final PsiFile psiFile;
+    private final Document document;
+
+    FileEntry(VirtualFile file, @Nullable PsiFile psiFile, @Nullable Document document) {
+      this.file = file;
+      this.psiFile = psiFile;
+      this.document = document;
+    }
+
+    public VirtualFile getFile() {
+      return file;
+    }
+
+    @Nullable
+    public PsiFile getPsiFile() {
+      return psiFile;
+    }
+
+    @Nullable
+    public Document getDocument() {
+      return document;
+    }
+  }
+
+  /**
+   * Sets the directory relative operation paths are resolved against.
+   *
+   * @return false if the path is set but does not point to an existing directory
+   */
+  public boolean setBasePath(@Nullable String basePath) {
+    if (basePath == null || basePath.isEmpty()) {
+      baseDir = null;
+      return true;
+    }
+
+    VirtualFile dir;
+    if (new File(basePath).isAbsolute()) {
+      dir = LocalFileSystem.getInstance().findFileByIoFile(new File(basePath));
+    } else {
+      VirtualFile root = getProjectDir();
+      dir = root != null ? root.findFileByRelativePath(basePath) : null;
+    }
+
+    baseDir = dir != null && dir.isDirectory() ? dir : null;
+    return baseDir != null;
+  }
+
+  /**
+   * Finds the file an operation path refers to. Each distinct path is only resolved once.
+   */
+  @Nullable
+  public VirtualFile findFile(String filePath) {
+    Optional<VirtualFile> cached = files.get(filePath);
+    if (cached == null) {
+      cached = Optional.ofNullable(resolve(filePath));
+      files.put(filePath, cached);
+    }
+    return cached.orElse(null);
+  }
+
+  /**
+   * Whether {@link #lookup} would serve the path from the cache. Must be called inside a read action.
+   */
+  public boolean isCached(String filePath) {
+    Optional<VirtualFile> cached = files.get(filePath);
+    if (cached == null) return false;
+    return cached.isEmpty() || getCachedEntry(cached.get()) != null;
+  }
+
+  /**
+   * Looks up the file, PSI and document for a path. Must be called inside a read action.
+   * The lookup is not counted until it is reported through {@link #recordLookup}.
+   *
+   * @return null if the path does not resolve to a file
+   */
+  @Nullable
+  public FileEntry lookup(String filePath) {
+    VirtualFile file = findFile(filePath);
+    if (file == null) {
+      return null;
+    }
+
+    FileEntry entry = getCachedEntry(file);
+    if (entry != null) {
+      return entry;
+    }
+
+    entry = new FileEntry(file, PsiManager.getInstance(project).findFile(file),
+        FileDocumentManager.getInstance().getDocument(file));
+    synchronized (entries) {
+      entries.put(file, entry);
+    }
+    return entry;
+  }
+
+  @Nullable
+  private FileEntry getCachedEntry(VirtualFile file) {
+    FileEntry entry;
+    synchronized (entries) {
+      entry = entries.get(file);
+    }
+    return entry != null && entry.psiFile != null && !entry.psiFile.isValid() ? null : entry;
+  }
+
+  /**
+   * Counts a completed lookup. Callers that may repeat a lookup, like restarted read actions,
+   * report it once, with whether the first attempt was served from the cache.
+   */
+  public void recordLookup(boolean cached) {
+    if (cached) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+    }
+  }
+
+  /**
+   * Number of lookups that were served from the cache
+   */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Number of file lookups that had to go to the VFS and PSI
+   */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  @Nullable
+  private VirtualFile resolve(String filePath) {
+    if (new File(filePath).isAbsolute()) {
+      return LocalFileSystem.getInstance().findFileByIoFile(new File(filePath));
+    }
+
+    if (baseDir != null) {
+      VirtualFile targetFile = baseDir.findFileByRelativePath(filePath);
+      if (targetFile != null) {
+        return targetFile;
+      }
+    }
+
+    VirtualFile root = getProjectDir();
+    return root != null ? root.findFileByRelativePath(filePath) : null;
+  }
+
+  @Nullable
+  private synchronized VirtualFile getProjectDir() {
+    if (!projectDirGuessed) {
+      projectDir = ProjectUtil.guessProjectDir(project);
+      projectDirGuessed = true;
+    }
+    return projectDir;
+  }
+}
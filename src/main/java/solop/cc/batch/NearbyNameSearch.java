@@ -0,0 +1,86 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Finds a declaration by name close to a position whose coordinates have drifted.
+ * <p>
+ * Only the lines within {@link #WINDOW_LINES} of the expected line are searched, nearest
+ * lines first, so a few inserted or removed lines are tolerated without scanning the file.
+ * </p>
+ */
+class NearbyNameSearch {
+  static final int WINDOW_LINES = 10;
+
+  private NearbyNameSearch() {
+  }
+
+  /**
+   * Returns the named element called {@code name} whose occurrence is nearest to
+   * {@code offset}, or null if there is none in the window. Must be called in a read action.
+   */
+  @Nullable
+  static PsiNamedElement find(PsiFile psiFile, Document doc, int offset, String name) {
+    CharSequence text = doc.getCharsSequence();
+    int line = doc.getLineNumber(offset);
+    int column = offset - doc.getLineStartOffset(line);
+
+    for (int distance = 0; distance <= WINDOW_LINES; distance++) {
+      PsiNamedElement found = null;
+      int bestColumnDistance = Integer.MAX_VALUE;
+      for (int candidate : distance == 0 ? new int[]{line} : new int[]{line - distance, line + distance}) {
+        if (candidate < 0 || candidate >= doc.getLineCount()) continue;
+
+        int lineStart = doc.getLineStartOffset(candidate);
+        int lineEnd = doc.getLineEndOffset(candidate);
+        for (int at = indexOf(text, name, lineStart, lineEnd); at >= 0; at = indexOf(text, name, at + 1, lineEnd)) {
+          PsiNamedElement element = declarationAt(psiFile, at, name);
+          int columnDistance = Math.abs(at - lineStart - column);
+          if (element != null && columnDistance < bestColumnDistance) {
+            found = element;
+            bestColumnDistance = columnDistance;
+          }
+        }
+      }
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private static PsiNamedElement declarationAt(PsiFile psiFile, int offset, String name) {
+    PsiElement leaf = psiFile.findElementAt(offset);
+    PsiNamedElement element = PsiTreeUtil.getParentOfType(leaf, PsiNamedElement.class);
+    return element != null && name.equals(element.getName()) ? element : null;
+  }
+
+  /**
+   * Finds {@code name} as a whole identifier in {@code text[from, to)}
+   */
+  private static int indexOf(CharSequence text, String name, int from, int to) {
+    for (int at = from; at + name.length() <= to; at++) {
+      if (regionMatches(text, at, name)
+          && (at == 0 || !Character.isJavaIdentifierPart(text.charAt(at - 1)))
+          && (at + name.length() == text.length() || !Character.isJavaIdentifierPart(text.charAt(at + name.length())))) {
+        return at;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean regionMatches(CharSequence text, int at, String name) {
+    for (int i = 0; i < name.length(); i++) {
+      if (text.charAt(at + i) != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,13 @@
+package solop.cc.batch;
+
+/**
+ * Receives what resolving a chunk finds out besides the targets themselves
+ */
+interface RenameOutcomeSink {
+  /**
+   * Counts operations that turned out to select more than one symbol
+   */
+  void addOperations(int count);
+
+  void addFailure(String location, String reason);
+}
@@ -0,0 +1,338 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtilCore;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.Nullable;
+import solop.cc.model.RenameConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Turns rename operations into smart pointers to their target elements.
+ * <p>
+ * Operations are grouped by file, each file is looked up once through the run's
+ * {@link FileLookupCache}, and each group is resolved in its own non-blocking
+ * read action on a pool bounded by the number of cores, so resolution never holds up
+ * write actions and scales with the number of files in the config.
+ * </p>
+ * <p>
+ * Operations that select symbols by qualified name or name pattern are resolved one by one
+ * through {@link SymbolIndexLookup} on the same pool, in read actions that wait for smart
+ * mode. Such an operation may select several symbols.
+ * </p>
+ */
+public class RenameTargetResolver {
+  static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+      "Batch Renamer Resolver", Runtime.getRuntime().availableProcessors());
+  private static final long POLL_INTERVAL_MS = 50;
+
+  private final Project project;
+  private final FileLookupCache files;
+  private final DocumentEditLog editLog;
+  @Nullable
+  private final BatchRenameMetrics metrics;
+
+  RenameTargetResolver(Project project, FileLookupCache files, DocumentEditLog editLog) {
+    this(project, files, editLog, null);
+  }
+
+  /**
+   * @param metrics Receives a sample per file lookup and per resolved operation
+   */
+  RenameTargetResolver(Project project, FileLookupCache files, DocumentEditLog editLog,
+                       @Nullable BatchRenameMetrics metrics) {
+    this.project = project;
+    this.files = files;
+    this.editLog = editLog;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Resolves all operations, adding a failure to the result for each one that has no target.
+   * The returned list keeps the order of the operations.
+   */
+  public List<ResolvedRename> resolve(List<RenameConfig.RenameOperation> operations, ProgressIndicator indicator,
+                                      RenameOutcomeSink result) {
+    int totalOps = operations.size();
+    ResolvedRename[] resolved = new ResolvedRename[totalOps];
+    List<ResolvedRename>[] lookedUp = newLookupSlots(totalOps);
+    // Why each operation without a target failed
+    String[] errors = new String[totalOps];
+
+    // Sorted by path, so each file is looked up once and files are visited in a stable order
+    Map<String, List<Integer>> groups = new TreeMap<>();
+    List<Integer> indexLookups = new ArrayList<>();
+    for (int i = 0; i < totalOps; i++) {
+      RenameConfig.RenameOperation op = operations.get(i);
+      if (op.isIndexLookup()) {
+        indexLookups.add(i);
+      } else {
+        groups.computeIfAbsent(op.getFilePath(), p -> new ArrayList<>()).add(i);
+      }
+    }
+
+    AtomicInteger resolvedOps = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>(groups.size() + indexLookups.size());
+    SymbolIndexLookup symbols = new SymbolIndexLookup(project);
+    for (int index : indexLookups) {
+      futures.add(EXECUTOR.submit(() -> {
+        // Timings of the attempt that completed; restarted attempts overwrite theirs
+        long[] nanos = new long[1];
+        ReadAction
+            .nonBlocking(() -> lookUp(symbols, operations.get(index), index, lookedUp, errors, nanos))
+            .inSmartMode(project)
+            .wrapProgress(indicator)
+            .expireWith(project)
+            .executeSynchronously();
+        record(BatchRenameMetrics.Phase.RESOLVE, nanos[0]);
+        resolvedOps.incrementAndGet();
+      }));
+    }
+    for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+      futures.add(EXECUTOR.submit(() -> {
+        // Whether the first attempt found the file in the cache; a restart would find it there anyway
+        Boolean[] cached = new Boolean[1];
+        // The file lookup, then each operation; -1 for operations that were not resolved
+        long[] nanos = new long[group.getValue().size() + 1];
+        ReadAction
+            .nonBlocking(() -> resolveGroup(group.getKey(), group.getValue(), operations, resolved, errors, cached, nanos))
+            .wrapProgress(indicator)
+            .expireWith(project)
+            .executeSynchronously();
+        files.recordLookup(cached[0]);
+        record(BatchRenameMetrics.Phase.FILE_LOOKUP, nanos[0]);
+        for (int i = 1; i < nanos.length; i++) {
+          if (nanos[i] >= 0) {
+            record(BatchRenameMetrics.Phase.RESOLVE, nanos[i]);
+          }
+        }
+        resolvedOps.addAndGet(group.getValue().size());
+      }));
+    }
+
+    try {
+      for (Future<?> future : futures) {
+        await(future, indicator, () -> "Resolved " + resolvedOps.get() + " of " + totalOps + " targets");
+      }
+    } catch (ProcessCanceledException ex) {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      throw ex;
+    }
+
+    List<ResolvedRename> targets = new ArrayList<>(totalOps);
+    for (int i = 0; i < totalOps; i++) {
+      if (resolved[i] != null) {
+        targets.add(resolved[i]);
+      } else if (lookedUp[i] != null) {
+        targets.addAll(lookedUp[i]);
+        // Each selected symbol counts as an operation of its own
+        result.addOperations(lookedUp[i].size() - 1);
+      } else if (errors[i] != null) {
+        result.addFailure(location(operations.get(i)), errors[i]);
+      }
+    }
+    return targets;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<ResolvedRename>[] newLookupSlots(int size) {
+    return (List<ResolvedRename>[]) new List<?>[size];
+  }
+
+  /**
+   * Resolves one operation that selects its targets by name. Runs inside a read action in
+   * smart mode and, like {@link #resolveGroup}, only writes to its own slot.
+   */
+  private Void lookUp(SymbolIndexLookup symbols, RenameConfig.RenameOperation op, int index,
+                      List<ResolvedRename>[] lookedUp, String[] errors, long[] nanos) {
+    lookedUp[index] = null;
+    errors[index] = null;
+    long start = System.nanoTime();
+    try {
+      List<SymbolIndexLookup.Match> matches = symbols.find(op);
+      if (matches.isEmpty()) {
+        errors[index] = "no matching symbol found";
+        return null;
+      }
+
+      List<ResolvedRename> targets = new ArrayList<>(matches.size());
+      SmartPointerManager pointers = SmartPointerManager.getInstance(project);
+      for (SymbolIndexLookup.Match match : matches) {
+        PsiNamedElement element = match.element();
+        VirtualFile vf = PsiUtilCore.getVirtualFile(element);
+        if (vf == null) continue;
+        targets.add(new ResolvedRename(op, index, vf, pointers.createSmartPsiElementPointer(element), match.newName(),
+            SymbolIndexLookup.describe(element)));
+      }
+      if (targets.isEmpty()) {
+        errors[index] = "no matching symbol found in project files";
+      } else {
+        lookedUp[index] = targets;
+      }
+    } catch (ProcessCanceledException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      errors[index] = "unexpected error: " + ex.getMessage();
+    } finally {
+      nanos[0] = System.nanoTime() - start;
+    }
+    return null;
+  }
+
+  /**
+   * Records a sample once the read action that took it has completed, so restarted attempts
+   * are not counted twice
+   */
+  private void record(BatchRenameMetrics.Phase phase, long nanos) {
+    if (metrics != null) {
+      metrics.record(phase, nanos);
+    }
+  }
+
+  /**
+   * Waits for a task submitted to {@link #EXECUTOR}, staying responsive to cancellation
+   * and showing {@code progress} while it runs
+   */
+  static <T> T await(Future<T> future, ProgressIndicator indicator, Supplier<String> progress) {
+    while (true) {
+      indicator.checkCanceled();
+      try {
+        return future.get(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException ignored) {
+        indicator.setText2(progress.get());
+      } catch (InterruptedException ex) {
+        throw new ProcessCanceledException(ex);
+      } catch (ExecutionException ex) {
+        if (ex.getCause() instanceof ProcessCanceledException pce) {
+          throw pce;
+        }
+        throw new RuntimeException(ex.getCause());
+      }
+    }
+  }
+
+  /**
+   * Resolves all operations on one file. Runs inside a read action and only writes
+   * to the slots of its own operations, so groups can run concurrently. The read action
+   * may be restarted by a pending write, so each slot is reset before it is filled.
+   */
+  private Void resolveGroup(String filePath, List<Integer> indices, List<RenameConfig.RenameOperation> operations,
+                            ResolvedRename[] resolved, String[] errors, Boolean[] cached, long[] nanos) {
+    long lookupStart = System.nanoTime();
+    if (cached[0] == null) {
+      cached[0] = files.isCached(filePath);
+    }
+    FileLookupCache.FileEntry entry = files.lookup(filePath);
+    nanos[0] = System.nanoTime() - lookupStart;
+    VirtualFile vf = entry != null ? entry.getFile() : null;
+    PsiFile psiFile = entry != null ? entry.getPsiFile() : null;
+    Document doc = entry != null ? entry.getDocument() : null;
+
+    for (int i = 0; i < indices.size(); i++) {
+      int index = indices.get(i);
+      RenameConfig.RenameOperation op = operations.get(index);
+      resolved[index] = null;
+      errors[index] = null;
+      nanos[i + 1] = -1;
+      if (vf == null) {
+        errors[index] = "file not found";
+      } else if (psiFile == null || doc == null) {
+        errors[index] = "file cannot be parsed";
+      } else {
+        long start = System.nanoTime();
+        try {
+          resolved[index] = resolveInFile(op, vf, psiFile, doc, errors, index);
+        } catch (ProcessCanceledException ex) {
+          throw ex;
+        } catch (Exception ex) {
+          errors[index] = "unexpected error: " + ex.getMessage();
+        } finally {
+          nanos[i + 1] = System.nanoTime() - start;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private ResolvedRename resolveInFile(RenameConfig.RenameOperation op, VirtualFile vf, PsiFile psiFile, Document doc,
+                                       String[] errors, int index) {
+    // Exported offsets need no line lookup, only the shift by earlier edits
+    int offset = op.hasOffset()
+        ? editLog.offsetOf(doc, op.getOffset())
+        : editLog.offsetOf(doc, op.getLine(), op.getColumn());
+    if (offset < 0) {
+      errors[index] = op.hasOffset() ? "offset is past the end of the file"
+          : offset == DocumentEditLog.COLUMN_PAST_END ? "column is past the end of the line"
+          : "line is past the end of the file";
+      return null;
+    }
+
+    PsiElement element = psiFile.findElementAt(offset);
+    PsiNamedElement namedElement = PsiTreeUtil.getParentOfType(element, PsiNamedElement.class);
+    String oldName = op.getOldName();
+    if (oldName != null && (namedElement == null || !oldName.equals(namedElement.getName()))) {
+      // The file has drifted since the config was generated; look for the expected name nearby
+      PsiNamedElement relocated = NearbyNameSearch.find(psiFile, doc, offset, oldName);
+      if (relocated == null) {
+        errors[index] = "expected '" + oldName + "' but found "
+            + (namedElement != null ? "'" + namedElement.getName() + "'" : "no named element")
+            + ", and no '" + oldName + "' within " + NearbyNameSearch.WINDOW_LINES + " lines";
+        return null;
+      }
+      return new ResolvedRename(op, index, vf,
+          SmartPointerManager.getInstance(project).createSmartPsiElementPointer(relocated, psiFile),
+          op.getNewName(), location(op) + " (relocated to " + position(doc, relocated) + ")");
+    }
+
+    if (namedElement == null) {
+      errors[index] = "no named element at that position";
+      return null;
+    }
+
+    return new ResolvedRename(op, index, vf,
+        SmartPointerManager.getInstance(project).createSmartPsiElementPointer(namedElement, psiFile));
+  }
+
+  /**
+   * Current line and column of an element's name, 0-based like the config coordinates
+   */
+  private static String position(Document doc, PsiNamedElement element) {
+    int offset = element.getTextOffset();
+    int line = doc.getLineNumber(offset);
+    return line + "," + (offset - doc.getLineStartOffset(line));
+  }
+
+  static String location(RenameConfig.RenameOperation op) {
+    if (op.getSymbol() != null && !op.getSymbol().isBlank()) {
+      return op.getSymbol();
+    }
+    if (op.getNamePattern() != null && !op.getNamePattern().isBlank()) {
+      return "/" + op.getNamePattern() + "/";
+    }
+    return op.getFilePath() + ":" + op.getLine() + "," + op.getColumn();
+  }
+}
@@ -0,0 +1,230 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.impl.source.PostprocessReformattingAspect;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies renames from a background thread without holding the EDT for long.
+ * <p>
+ * The renames are split into slices. Each slice's usages are searched for in a non-blocking
+ * read action on the resolver's pool, and only the rewrite is posted to the EDT, as one
+ * write command per slice that also commits the touched documents. Between slices the EDT
+ * is free to process input and repaint.
+ * </p>
+ * <p>
+ * Slices are sized from the time the previous write took on the EDT, aiming for
+ * {@value #WRITE_BUDGET_MS} ms per write: a slice grows at most twofold when writes are fast
+ * and shrinks right away when they are slow, down to a single rename. The size carries over
+ * between calls, so later chunks of a run start from what earlier ones learned.
+ * </p>
+ * <p>
+ * All write commands of one scheduler share an undo group and are undone in one step.
+ * </p>
+ */
+public class RenameWriteScheduler {
+  private static final long WRITE_BUDGET_MS = 50;
+  private static final int INITIAL_SLICE_SIZE = 8;
+  private static final int MAX_SLICE_SIZE = 500;
+
+  private final Project project;
+  private final String commandName;
+  // Commands with the same group id are merged into one undoable action
+  private final String undoGroup;
+  private BatchRenameMetrics metrics;
+  private boolean saveDocuments;
+  private int sliceSize = INITIAL_SLICE_SIZE;
+
+  private record Slice(CombinedRename rename, @Nullable CombinedRename.Usages usages, int[] indices) {
+  }
+
+  /**
+   * Told about every slice once it is written, on the thread that called {@link #rename}
+   */
+  public interface SliceListener {
+    /**
+     * @param errors The errors array {@link #rename} returns; the entries before {@code done} are final
+     * @param done   Number of targets handled so far
+     */
+    void sliceWritten(String[] errors, int done);
+  }
+
+  public RenameWriteScheduler(Project project, String commandName) {
+    this.project = project;
+    this.commandName = commandName;
+    this.undoGroup = commandName + " " + UUID.randomUUID();
+  }
+
+  public void setMetrics(BatchRenameMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Saves every touched document after its slice, so nothing written is lost if the IDE stops
+   */
+  public void setSaveDocuments(boolean saveDocuments) {
+    this.saveDocuments = saveDocuments;
+  }
+
+  /**
+   * Renames every target to the new name at the same index. Must not be called on the EDT
+   * or inside a read action. Cancelling the indicator stops before the next write; a write
+   * that has started is always finished.
+   *
+   * @return One entry per target, in order: null if it was renamed, otherwise the reason it was not
+   */
+  public String[] rename(List<SmartPsiElementPointer<PsiNamedElement>> targets, List<String> newNames,
+                         ProgressIndicator indicator) {
+    return rename(targets, newNames, indicator, (errors, done) -> {
+    });
+  }
+
+  /**
+   * Like {@link #rename(List, List, ProgressIndicator)}, telling the listener about every
+   * slice, so what was written can be accounted for even if a later slice is cancelled
+   */
+  public String[] rename(List<SmartPsiElementPointer<PsiNamedElement>> targets, List<String> newNames,
+                         ProgressIndicator indicator, SliceListener listener) {
+    String[] errors = new String[targets.size()];
+    int from = 0;
+    while (from < targets.size()) {
+      indicator.checkCanceled();
+      int sliceFrom = from;
+      int sliceTo = Math.min(from + sliceSize, targets.size());
+      int done = from;
+
+      Slice slice = RenameTargetResolver.await(RenameTargetResolver.EXECUTOR.submit(() -> ReadAction
+              .nonBlocking(() -> prepare(targets, newNames, sliceFrom, sliceTo))
+              .inSmartMode(project)
+              .wrapProgress(indicator)
+              .expireWith(project)
+              .executeSynchronously()),
+          indicator, () -> "Searching for usages, " + done + " of " + targets.size() + " symbols renamed");
+      if (metrics != null && slice.usages() != null) {
+        metrics.record(BatchRenameMetrics.Phase.USAGE_SEARCH, slice.usages().getSearchNanos());
+      }
+
+      Arrays.fill(errors, sliceFrom, sliceTo, "target is no longer valid");
+      if (slice.usages() != null) {
+        String[] sliceErrors = write(slice, indicator);
+        for (int i = 0; i < slice.indices().length; i++) {
+          errors[slice.indices()[i]] = sliceErrors[i];
+        }
+      }
+      from = sliceTo;
+      listener.sliceWritten(errors, from);
+      indicator.setText2("Renamed " + from + " of " + targets.size() + " symbols");
+    }
+    return errors;
+  }
+
+  /**
+   * Builds one slice's rename and searches for its usages. Runs in a read action that may
+   * be restarted, so it only builds new objects.
+   */
+  private Slice prepare(List<SmartPsiElementPointer<PsiNamedElement>> targets, List<String> newNames,
+                        int from, int to) {
+    CombinedRename rename = new CombinedRename(project);
+    rename.setMetrics(metrics);
+    List<Integer> indices = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      PsiNamedElement element = targets.get(i).getElement();
+      if (element != null) {
+        rename.add(element, newNames.get(i));
+        indices.add(i);
+      }
+    }
+    CombinedRename.Usages usages = rename.isEmpty() ? null : rename.findUsages();
+    return new Slice(rename, usages, indices.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  /**
+   * Posts a slice's write to the EDT and waits for it. The wait is not cancellable, as the
+   * write either has not started and is skipped, or is bounded and must be accounted for.
+   */
+  private String[] write(Slice slice, ProgressIndicator indicator) {
+    CompletableFuture<String[]> written = new CompletableFuture<>();
+    long[] writeNanos = new long[1];
+    ApplicationManager.getApplication().invokeLater(() -> {
+      if (indicator.isCanceled() || project.isDisposed()) {
+        written.completeExceptionally(new ProcessCanceledException());
+        return;
+      }
+      try {
+        long start = System.nanoTime();
+        String[][] errors = new String[1][];
+        WriteCommandAction.writeCommandAction(project).withName(commandName).withGroupId(undoGroup).run(() -> {
+          // Reformat once for the whole slice, also when the renames fall back to one refactoring per symbol
+          errors[0] = PostprocessReformattingAspect.getInstance(project)
+              .postponeFormattingInside(() -> slice.rename().run(slice.usages()));
+          commitDocuments(slice.rename());
+        });
+        writeNanos[0] = System.nanoTime() - start;
+        written.complete(errors[0]);
+      } catch (Throwable ex) {
+        written.completeExceptionally(ex);
+      }
+    }, ModalityState.defaultModalityState());
+
+    String[] errors;
+    try {
+      errors = written.get();
+    } catch (InterruptedException ex) {
+      throw new ProcessCanceledException(ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException runtime) throw runtime;
+      if (ex.getCause() instanceof Error error) throw error;
+      throw new RuntimeException(ex.getCause());
+    }
+    adaptSliceSize(slice.indices().length, writeNanos[0]);
+    return errors;
+  }
+
+  private void commitDocuments(CombinedRename rename) {
+    PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+    for (VirtualFile file : rename.getTouchedFiles()) {
+      if (metrics != null) {
+        metrics.addTouchedFile(file.getPath());
+      }
+      Document doc = FileDocumentManager.getInstance().getCachedDocument(file);
+      if (doc == null) continue;
+
+      long commitStart = System.nanoTime();
+      documentManager.doPostponedOperationsAndUnblockDocument(doc);
+      documentManager.commitDocument(doc);
+      if (metrics != null) {
+        metrics.record(BatchRenameMetrics.Phase.COMMIT, System.nanoTime() - commitStart);
+      }
+      if (saveDocuments) {
+        FileDocumentManager.getInstance().saveDocument(doc);
+      }
+    }
+  }
+
+  private void adaptSliceSize(int renames, long writeNanos) {
+    long budget = TimeUnit.MILLISECONDS.toNanos(WRITE_BUDGET_MS);
+    long perRename = Math.max(1, writeNanos / Math.max(1, renames));
+    long fitting = budget / perRename;
+    sliceSize = (int) Math.max(1, Math.min(Math.min(MAX_SLICE_SIZE, sliceSize * 2L), fitting));
+  }
+}
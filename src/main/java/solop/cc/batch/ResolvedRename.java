@@ -0,0 +1,73 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.SmartPsiElementPointer;
+import solop.cc.model.RenameConfig;
+
+/**
+ * A rename operation whose target has been located in the PSI.
+ * <p>
+ * The target is kept as a smart pointer so it survives the renames applied
+ * before it in the same file, which would invalidate raw offsets.
+ * </p>
+ */
+public class ResolvedRename {
+  private final RenameConfig.RenameOperation operation;
+  private final int operationIndex;
+  private final VirtualFile file;
+  private final SmartPsiElementPointer<PsiNamedElement> target;
+  private final String newName;
+  private final String location;
+
+  /**
+   * @param operationIndex Index of the operation in the chunk it was resolved from
+   */
+  public ResolvedRename(RenameConfig.RenameOperation operation, int operationIndex, VirtualFile file,
+                        SmartPsiElementPointer<PsiNamedElement> target) {
+    this(operation, operationIndex, file, target, operation.getNewName(), RenameTargetResolver.location(operation));
+  }
+
+  /**
+   * @param operationIndex Index of the operation in the chunk it was resolved from
+   * @param newName        The name for this target; operations matching a name pattern compute it per symbol
+   * @param location       How the target is identified in the run's report
+   */
+  public ResolvedRename(RenameConfig.RenameOperation operation, int operationIndex, VirtualFile file,
+                        SmartPsiElementPointer<PsiNamedElement> target, String newName, String location) {
+    this.operation = operation;
+    this.operationIndex = operationIndex;
+    this.file = file;
+    this.target = target;
+    this.newName = newName;
+    this.location = location;
+  }
+
+  public RenameConfig.RenameOperation getOperation() {
+    return operation;
+  }
+
+  /**
+   * Index of the operation in its chunk. An operation that selects several symbols has one
+   * target per symbol, all with the same index.
+   */
+  public int getOperationIndex() {
+    return operationIndex;
+  }
+
+  public VirtualFile getFile() {
+    return file;
+  }
+
+  public SmartPsiElementPointer<PsiNamedElement> getTarget() {
+    return target;
+  }
+
+  public String getNewName() {
+    return newName;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+}
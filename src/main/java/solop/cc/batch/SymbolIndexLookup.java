@@ -0,0 +1,175 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiCompiledElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMember;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiShortNamesCache;
+import solop.cc.model.RenameConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the targets of operations that select symbols by name instead of by position.
+ * <p>
+ * Qualified names are looked up with {@link JavaPsiFacade}, name patterns are matched
+ * against the short names in {@link PsiShortNamesCache}, so only the matching
+ * declarations are loaded instead of scanning the project's files. Both need the indexes
+ * and must be called in a read action in smart mode. Only project sources are searched;
+ * library symbols cannot be renamed anyway.
+ * </p>
+ */
+class SymbolIndexLookup {
+  private final Project project;
+  private final GlobalSearchScope scope;
+
+  SymbolIndexLookup(Project project) {
+    this.project = project;
+    this.scope = GlobalSearchScope.projectScope(project);
+  }
+
+  /**
+   * A symbol found for an operation together with the name it should get
+   */
+  record Match(PsiNamedElement element, String newName) {
+  }
+
+  /**
+   * Finds every symbol the operation selects, in a stable order without duplicates
+   */
+  List<Match> find(RenameConfig.RenameOperation op) {
+    String kind = op.getKind();
+    if (op.getSymbol() != null && !op.getSymbol().isBlank()) {
+      List<Match> matches = new ArrayList<>();
+      for (PsiNamedElement element : findByQualifiedName(op.getSymbol().trim(), kind)) {
+        matches.add(new Match(element, op.getNewName()));
+      }
+      return matches;
+    }
+    return findByPattern(Pattern.compile(op.getNamePattern()), op.getNewName(), kind);
+  }
+
+  /**
+   * Resolves {@code com.example.Foo} to the class and {@code com.example.Foo#bar} to its
+   * fields, methods (all overloads) and inner classes named {@code bar}
+   */
+  private Set<PsiNamedElement> findByQualifiedName(String symbol, String kind) {
+    int separator = symbol.indexOf('#');
+    String className = separator < 0 ? symbol : symbol.substring(0, separator);
+    String memberName = separator < 0 ? null : symbol.substring(separator + 1);
+
+    PsiClass[] classes = JavaPsiFacade.getInstance(project).findClasses(className, scope);
+    Set<PsiNamedElement> elements = new LinkedHashSet<>();
+    for (PsiClass psiClass : classes) {
+      if (memberName == null) {
+        if (accepts(kind, "class")) {
+          elements.add(psiClass);
+        }
+        continue;
+      }
+
+      if (accepts(kind, "field")) {
+        PsiField field = psiClass.findFieldByName(memberName, false);
+        if (field != null) {
+          elements.add(field);
+        }
+      }
+      if (accepts(kind, "method")) {
+        for (PsiMethod method : psiClass.findMethodsByName(memberName, false)) {
+          if (!method.isConstructor()) {
+            elements.add(method);
+          }
+        }
+      }
+      if (accepts(kind, "class")) {
+        PsiClass inner = psiClass.findInnerClassByName(memberName, false);
+        if (inner != null) {
+          elements.add(inner);
+        }
+      }
+    }
+    elements.removeIf(element -> element instanceof PsiCompiledElement);
+    return elements;
+  }
+
+  /**
+   * Finds declarations whose short name fully matches the pattern. The new name is the
+   * pattern's replacement for that short name, so it can refer to capture groups.
+   */
+  private List<Match> findByPattern(Pattern pattern, String replacement, String kind) {
+    Set<PsiNamedElement> elements = new LinkedHashSet<>();
+    PsiShortNamesCache cache = PsiShortNamesCache.getInstance(project);
+
+    if (accepts(kind, "class")) {
+      for (String name : matchingNames(pattern, cache.getAllClassNames())) {
+        Collections.addAll(elements, cache.getClassesByName(name, scope));
+      }
+    }
+    if (accepts(kind, "method")) {
+      for (String name : matchingNames(pattern, cache.getAllMethodNames())) {
+        for (PsiMethod method : cache.getMethodsByName(name, scope)) {
+          if (!method.isConstructor()) {
+            elements.add(method);
+          }
+        }
+      }
+    }
+    if (accepts(kind, "field")) {
+      for (String name : matchingNames(pattern, cache.getAllFieldNames())) {
+        Collections.addAll(elements, cache.getFieldsByName(name, scope));
+      }
+    }
+
+    List<Match> matches = new ArrayList<>(elements.size());
+    for (PsiNamedElement element : elements) {
+      if (element instanceof PsiCompiledElement || element.getName() == null) {
+        continue;
+      }
+      Matcher matcher = pattern.matcher(element.getName());
+      if (matcher.matches()) {
+        matches.add(new Match(element, matcher.replaceFirst(replacement)));
+      }
+    }
+    return matches;
+  }
+
+  private static List<String> matchingNames(Pattern pattern, String[] names) {
+    List<String> matching = new ArrayList<>();
+    Matcher matcher = pattern.matcher("");
+    for (String name : names) {
+      if (matcher.reset(name).matches()) {
+        matching.add(name);
+      }
+    }
+    return matching;
+  }
+
+  private static boolean accepts(String kind, String candidate) {
+    return kind == null || kind.equals(candidate);
+  }
+
+  /**
+   * Describes a found symbol for the report, e.g. {@code com.example.Foo#bar}
+   */
+  static String describe(PsiNamedElement element) {
+    if (element instanceof PsiClass psiClass && psiClass.getQualifiedName() != null) {
+      return psiClass.getQualifiedName();
+    }
+    if (element instanceof PsiMember member && member.getContainingClass() != null
+        && member.getContainingClass().getQualifiedName() != null) {
+      return member.getContainingClass().getQualifiedName() + "#" + element.getName();
+    }
+    return element.getName();
+  }
+}
@@ -0,0 +1,290 @@
+package solop.cc.model;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Validates JSON configuration text that is being edited, re-checking only what changed.
+ * <p>
+ * A cheap character scan finds the operation objects in the text. Operations that lie
+ * entirely in the unchanged prefix or suffix of the previously validated text keep their
+ * earlier result; only the operations overlapping the edited region are parsed and checked
+ * again. The rest of the configuration is parsed with the operations array left out.
+ * Whenever the scan finds something it does not expect, the whole text is validated by
+ * {@link RenameConfigReader} so the error message is the same as for a full parse.
+ * </p>
+ * <p>
+ * Instances keep the state of the last validation and are safe to call from any thread.
+ * </p>
+ */
+public class IncrementalConfigValidator {
+  private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+  private String lastText;
+  private int[] opStarts = new int[0];
+  private int[] opEnds = new int[0];
+  private String[] opProblems = new String[0];
+  private int opCount;
+
+  /**
+   * Validates the text, returning the first problem found or null if the configuration is valid.
+   *
+   * @param isCancelled Polled during validation; once it returns true the validation stops
+   *                    with a {@link CancellationException} and the previous state is kept
+   */
+  public synchronized String validate(String text, BooleanSupplier isCancelled) {
+    Spans spans = Spans.scan(text, isCancelled);
+    if (spans == null) {
+      reset();
+      return validateFully(text);
+    }
+
+    try {
+      RenameConfigReader.read(new StringReader(
+          text.substring(0, spans.arrayStart) + "[]" + text.substring(spans.arrayEnd)), 1, chunk -> {});
+    } catch (IllegalArgumentException | IOException e) {
+      reset();
+      return validateFully(text);
+    }
+
+    String[] problems = new String[spans.count];
+    int prefix = 0;
+    int suffix = 0;
+    if (lastText != null) {
+      prefix = commonPrefix(lastText, text);
+      suffix = commonSuffix(lastText, text, prefix);
+    }
+    int delta = text.length() - (lastText != null ? lastText.length() : 0);
+
+    for (int i = 0; i < spans.count; i++) {
+      if (i % CANCEL_CHECK_INTERVAL == 0 && isCancelled.getAsBoolean()) {
+        throw new CancellationException();
+      }
+
+      int start = spans.starts[i];
+      int end = spans.ends[i];
+      int previous = -1;
+      if (end <= prefix) {
+        previous = findOperation(start, end);
+      } else if (start >= text.length() - suffix) {
+        previous = findOperation(start - delta, end - delta);
+      }
+
+      if (previous >= 0) {
+        problems[i] = opProblems[previous];
+        continue;
+      }
+
+      try {
+        problems[i] = checkOperation(text.substring(start, end));
+      } catch (IllegalArgumentException | IOException e) {
+        reset();
+        return validateFully(text);
+      }
+    }
+
+    lastText = text;
+    opStarts = spans.starts;
+    opEnds = spans.ends;
+    opProblems = problems;
+    opCount = spans.count;
+
+    if (opCount == 0) {
+      return "No rename operations found in configuration";
+    }
+    for (int i = 0; i < opCount; i++) {
+      if (opProblems[i] != null) {
+        return "Operation #" + (i + 1) + ": " + opProblems[i];
+      }
+    }
+    return null;
+  }
+
+  private static String checkOperation(String json) throws IOException {
+    try (JsonReader in = new JsonReader(new StringReader(json))) {
+      in.setLenient(true);
+      RenameConfig.RenameOperation op = RenameConfigReader.readOperation(in);
+      if (in.peek() != JsonToken.END_DOCUMENT) {
+        throw new IllegalArgumentException("Unexpected content after operation");
+      }
+      return RenameConfigReader.check(op);
+    } catch (IllegalStateException | NumberFormatException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private static String validateFully(String text) {
+    try (Reader reader = new StringReader(text)) {
+      RenameConfigReader.scan(reader);
+      return null;
+    } catch (Exception e) {
+      return e.getMessage();
+    }
+  }
+
+  private int findOperation(int start, int end) {
+    int index = Arrays.binarySearch(opStarts, 0, opCount, start);
+    return index >= 0 && opEnds[index] == end ? index : -1;
+  }
+
+  private void reset() {
+    lastText = null;
+    opCount = 0;
+  }
+
+  private static int commonPrefix(String a, String b) {
+    int max = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < max && a.charAt(i) == b.charAt(i)) i++;
+    return i;
+  }
+
+  private static int commonSuffix(String a, String b, int prefix) {
+    int max = Math.min(a.length(), b.length()) - prefix;
+    int i = 0;
+    while (i < max && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i)) i++;
+    return i;
+  }
+
+  /**
+   * Positions of the operations array and of each operation object in a configuration text
+   */
+  private static class Spans {
+    int arrayStart;
+    int arrayEnd;
+    int[] starts = new int[64];
+    int[] ends = new int[64];
+    int count;
+
+    /**
+     * Finds the operation objects in strict JSON text, or returns null if the text
+     * is not laid out as expected
+     */
+    static Spans scan(String text, BooleanSupplier isCancelled) {
+      Spans spans = new Spans();
+      int length = text.length();
+      int i = skipWhitespace(text, 0);
+      if (i >= length || text.charAt(i) != '{') return null;
+      i++;
+
+      // Walk the top-level object looking for the "operations" key
+      while (true) {
+        i = skipWhitespace(text, i);
+        if (i >= length || text.charAt(i) != '"') return null;
+        int keyEnd = skipString(text, i);
+        if (keyEnd < 0) return null;
+        boolean isOperations = text.startsWith("\"operations\"", i) && keyEnd == i + 12;
+
+        i = skipWhitespace(text, keyEnd);
+        if (i >= length || text.charAt(i) != ':') return null;
+        i = skipWhitespace(text, i + 1);
+
+        if (isOperations) {
+          if (i >= length || text.charAt(i) != '[') return null;
+          spans.arrayStart = i;
+          spans.arrayEnd = spans.scanArray(text, i, isCancelled);
+          return spans.arrayEnd < 0 ? null : spans;
+        }
+
+        i = skipValue(text, i);
+        if (i < 0) return null;
+        i = skipWhitespace(text, i);
+        if (i >= length || text.charAt(i) != ',') return null;
+        i++;
+      }
+    }
+
+    /**
+     * Records every object in the array starting at {@code start}, returning the offset after the array
+     */
+    private int scanArray(String text, int start, BooleanSupplier isCancelled) {
+      int i = skipWhitespace(text, start + 1);
+      if (i < text.length() && text.charAt(i) == ']') return i + 1;
+
+      while (true) {
+        if ((count % CANCEL_CHECK_INTERVAL) == 0 && isCancelled.getAsBoolean()) {
+          throw new CancellationException();
+        }
+        if (i >= text.length() || text.charAt(i) != '{') return -1;
+        int end = skipValue(text, i);
+        if (end < 0) return -1;
+        add(i, end);
+
+        i = skipWhitespace(text, end);
+        if (i >= text.length()) return -1;
+        if (text.charAt(i) == ']') return i + 1;
+        if (text.charAt(i) != ',') return -1;
+        i = skipWhitespace(text, i + 1);
+      }
+    }
+
+    private void add(int start, int end) {
+      if (count == starts.length) {
+        starts = Arrays.copyOf(starts, count * 2);
+        ends = Arrays.copyOf(ends, count * 2);
+      }
+      starts[count] = start;
+      ends[count] = end;
+      count++;
+    }
+
+    /**
+     * Skips a value, returning the offset after it. Nested values are only matched by
+     * brackets; their content is checked when the value is parsed.
+     */
+    private static int skipValue(String text, int i) {
+      if (i >= text.length()) return -1;
+      char c = text.charAt(i);
+      if (c == '"') return skipString(text, i);
+      if (c != '{' && c != '[') {
+        while (i < text.length() && ",}] \t\r\n".indexOf(text.charAt(i)) < 0) i++;
+        return i;
+      }
+
+      int depth = 0;
+      while (i < text.length()) {
+        c = text.charAt(i);
+        if (c == '"') {
+          i = skipString(text, i);
+          if (i < 0) return -1;
+          continue;
+        }
+        if (c == '{' || c == '[') {
+          depth++;
+        } else if (c == '}' || c == ']') {
+          depth--;
+          if (depth == 0) return i + 1;
+        }
+        i++;
+      }
+      return -1;
+    }
+
+    private static int skipString(String text, int i) {
+      i++;
+      while (i < text.length()) {
+        char c = text.charAt(i);
+        if (c == '\\') {
+          i += 2;
+        } else if (c == '"') {
+          return i + 1;
+        } else {
+          i++;
+        }
+      }
+      return -1;
+    }
+
+    private static int skipWhitespace(String text, int i) {
+      while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+      return i;
+    }
+  }
+}
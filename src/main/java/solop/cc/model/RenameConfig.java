@@ -5,20 +5,96 @@ import java.util.List;
 public class RenameConfig {
   private String basePath;
   private List<RenameOperation> operations;
+  private int chunkSize;
+
+  public RenameConfig(String basePath, List<RenameOperation> operations) {
+    this(basePath, operations, RenameConfigReader.DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * @param chunkSize Number of operations resolved and applied together
+   */
+  public RenameConfig(String basePath, List<RenameOperation> operations, int chunkSize) {
+    this.basePath = basePath;
+    this.operations = operations;
+    this.chunkSize = chunkSize;
+  }
 
   public static class RenameOperation {
     private String filePath;
     private int line;
     private int column;
+    private String symbol;
+    private String namePattern;
+    private String kind;
+    private String oldName;
     private String newName;
+    private int offset;
+
+    public RenameOperation(String filePath, int line, int column, String newName) {
+      this(filePath, line, column, null, null, null, null, newName);
+    }
+
+    public RenameOperation(String filePath, int line, int column, String symbol, String namePattern, String kind,
+                           String oldName, String newName) {
+      this(filePath, line, column, symbol, namePattern, kind, oldName, newName, -1);
+    }
+
+    /**
+     * Creates an operation that selects its targets either by coordinates ({@code filePath},
+     * {@code line} and {@code column}), by qualified name ({@code symbol}, e.g.
+     * {@code com.example.Foo} or {@code com.example.Foo#bar}) or by a regular expression over
+     * short names ({@code namePattern}), optionally restricted to one {@code kind} of symbol.
+     * For coordinates, {@code oldName} is the symbol's expected current name, used to detect
+     * positions that have drifted since the config was generated. A non-negative {@code offset}
+     * is the symbol's character offset in the file, as exported from the rename dialog; it is
+     * used instead of {@code line} and {@code column}, which are then only informative.
+     */
+    public RenameOperation(String filePath, int line, int column, String symbol, String namePattern, String kind,
+                           String oldName, String newName, int offset) {
+      this.filePath = filePath;
+      this.line = line;
+      this.column = column;
+      this.symbol = symbol;
+      this.namePattern = namePattern;
+      this.kind = kind;
+      this.oldName = oldName;
+      this.newName = newName;
+      this.offset = offset;
+    }
 
     public String getFilePath() { return filePath; }
     public int getLine() { return line; }
     public int getColumn() { return column; }
+    public String getSymbol() { return symbol; }
+    public String getNamePattern() { return namePattern; }
+    public String getKind() { return kind; }
+    public String getOldName() { return oldName; }
     public String getNewName() { return newName; }
+    public int getOffset() { return offset; }
+
+    /**
+     * Whether the position is a pre-resolved character offset rather than a line and column
+     */
+    public boolean hasOffset() {
+      return offset >= 0;
+    }
+
+    /**
+     * Whether the targets are looked up in the project's indexes rather than at a file position
+     */
+    public boolean isIndexLookup() {
+      return RenameConfigReader.isSet(symbol) || RenameConfigReader.isSet(namePattern);
+    }
 
     @Override
     public String toString() {
+      if (symbol != null) {
+        return "Rename " + symbol + " to '" + newName + "'";
+      }
+      if (namePattern != null) {
+        return "Rename symbols matching /" + namePattern + "/ to '" + newName + "'";
+      }
       return "Rename at " + filePath + ":" + line + "," + column + " to '" + newName + "'";
     }
   }
@@ -31,6 +107,10 @@ public class RenameConfig {
     return operations;
   }
 
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
   @Override
   public String toString() {
     if (operations == null) return "No operations";
@@ -0,0 +1,276 @@
+package solop.cc.model;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Streaming reader for the JSON rename configuration.
+ * <p>
+ * Operations are read one object at a time with a {@link JsonReader} and handed out in
+ * chunks backed by a {@link RenameOperationStore}, so memory use depends on the chunk size
+ * rather than on the size of the manifest.
+ * Every operation is validated as it is read; problems are reported as
+ * {@link IllegalArgumentException}s naming the offending operation.
+ * </p>
+ */
+public class RenameConfigReader {
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  static final String BASE_PATH = "basePath";
+  static final String CHUNK_SIZE = "chunkSize";
+  static final String OPERATIONS = "operations";
+
+  /**
+   * Values accepted for an operation's optional "kind"
+   */
+  public static final List<String> KINDS = List.of("class", "method", "field");
+
+  /**
+   * Receives operations as they are read
+   */
+  public interface ChunkConsumer {
+    void accept(List<RenameConfig.RenameOperation> chunk);
+  }
+
+  /**
+   * Everything about a configuration except the operations themselves
+   */
+  public static class Summary {
+    private final String basePath;
+    private final int operationCount;
+    private final int chunkSize;
+
+    Summary(String basePath, int operationCount, int chunkSize) {
+      this.basePath = basePath;
+      this.operationCount = operationCount;
+      this.chunkSize = chunkSize;
+    }
+
+    public String getBasePath() {
+      return basePath;
+    }
+
+    public int getOperationCount() {
+      return operationCount;
+    }
+
+    /**
+     * Number of operations resolved and applied together, {@link #DEFAULT_CHUNK_SIZE} unless configured
+     */
+    public int getChunkSize() {
+      return chunkSize;
+    }
+  }
+
+  /**
+   * Reads and validates the whole configuration, keeping at most one chunk of operations in memory
+   */
+  public static Summary scan(Reader reader) throws IOException {
+    return scan(reader, () -> false);
+  }
+
+  /**
+   * Same as {@link #scan(Reader)}, but stops with a {@link CancellationException} once {@code isCancelled} returns true
+   */
+  public static Summary scan(Reader reader, BooleanSupplier isCancelled) throws IOException {
+    Summary summary = read(reader, DEFAULT_CHUNK_SIZE, chunk -> {
+      if (isCancelled.getAsBoolean()) {
+        throw new CancellationException();
+      }
+    });
+    if (summary.getOperationCount() == 0) {
+      throw new IllegalArgumentException("No rename operations found in configuration");
+    }
+    return summary;
+  }
+
+  /**
+   * Reads the whole configuration into memory. Only suitable for small configurations.
+   */
+  public static RenameConfig readConfig(Reader reader) throws IOException {
+    RenameOperationStore operations = new RenameOperationStore();
+    Summary summary = read(reader, DEFAULT_CHUNK_SIZE, operations::addAll);
+    return new RenameConfig(summary.getBasePath(), operations.asList(), summary.getChunkSize());
+  }
+
+  /**
+   * Reads the configuration, passing operations to the consumer in chunks of at most {@code chunkSize}.
+   *
+   * @return The settings of the configuration, which may appear after the operations in the file
+   */
+  public static Summary read(Reader reader, int chunkSize, ChunkConsumer consumer) throws IOException {
+    try (JsonReader in = new JsonReader(reader)) {
+      // Same leniency Gson.fromJson used when the config was bound in one go
+      in.setLenient(true);
+      String basePath = null;
+      int operationCount = 0;
+      int configuredChunkSize = DEFAULT_CHUNK_SIZE;
+
+      in.beginObject();
+      while (in.hasNext()) {
+        String name = in.nextName();
+        if (BASE_PATH.equals(name)) {
+          basePath = nextStringOrNull(in);
+        } else if (CHUNK_SIZE.equals(name) && in.peek() != JsonToken.NULL) {
+          configuredChunkSize = in.nextInt();
+          if (configuredChunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+          }
+        } else if (OPERATIONS.equals(name) && in.peek() != JsonToken.NULL) {
+          operationCount += readOperations(in, chunkSize, consumer);
+        } else {
+          in.skipValue();
+        }
+      }
+      in.endObject();
+
+      if (in.peek() != JsonToken.END_DOCUMENT) {
+        throw new IllegalArgumentException("JSON syntax error: unexpected content after configuration");
+      }
+      return new Summary(basePath, operationCount, configuredChunkSize);
+    } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+      throw new IllegalArgumentException("JSON syntax error: " + e.getMessage());
+    }
+  }
+
+  private static int readOperations(JsonReader in, int chunkSize, ChunkConsumer consumer) throws IOException {
+    RenameOperationStore chunk = new RenameOperationStore();
+    int index = 0;
+
+    in.beginArray();
+    while (in.hasNext()) {
+      chunk.add(readOperation(in, index++));
+      if (chunk.size() >= chunkSize) {
+        consumer.accept(chunk.asList());
+        chunk = chunk.nextChunk();
+      }
+    }
+    in.endArray();
+
+    if (chunk.size() > 0) {
+      consumer.accept(chunk.asList());
+    }
+    return index;
+  }
+
+  private static RenameConfig.RenameOperation readOperation(JsonReader in, int index) throws IOException {
+    RenameConfig.RenameOperation op = readOperation(in);
+    validate(op, index);
+    return op;
+  }
+
+  /**
+   * Reads one operation object without validating it
+   */
+  static RenameConfig.RenameOperation readOperation(JsonReader in) throws IOException {
+    String filePath = null;
+    String symbol = null;
+    String namePattern = null;
+    String kind = null;
+    String oldName = null;
+    String newName = null;
+    int line = 0;
+    int column = 0;
+    int offset = -1;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "filePath" -> filePath = nextStringOrNull(in);
+        case "newName" -> newName = nextStringOrNull(in);
+        case "line" -> line = in.nextInt();
+        case "column" -> column = in.nextInt();
+        case "symbol" -> symbol = nextStringOrNull(in);
+        case "namePattern" -> namePattern = nextStringOrNull(in);
+        case "kind" -> kind = nextStringOrNull(in);
+        case "oldName" -> oldName = nextStringOrNull(in);
+        case "offset" -> offset = in.nextInt();
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return new RenameConfig.RenameOperation(filePath, line, column, symbol, namePattern, kind, oldName, newName,
+        offset);
+  }
+
+  /**
+   * Checks a single operation, {@code index} is its zero-based position in the configuration
+   */
+  public static void validate(RenameConfig.RenameOperation op, int index) {
+    String problem = check(op);
+    if (problem != null) {
+      throw new IllegalArgumentException("Operation #" + (index + 1) + ": " + problem);
+    }
+  }
+
+  /**
+   * Returns what is wrong with an operation, or null if it is valid
+   */
+  static String check(RenameConfig.RenameOperation op) {
+    int selectors = (isSet(op.getFilePath()) ? 1 : 0) + (isSet(op.getSymbol()) ? 1 : 0)
+        + (isSet(op.getNamePattern()) ? 1 : 0);
+    if (selectors == 0) {
+      return "filePath, symbol or namePattern is required";
+    }
+    if (selectors > 1) {
+      return "only one of filePath, symbol or namePattern may be given";
+    }
+    if (!isSet(op.getNewName())) {
+      return "newName is required";
+    }
+
+    if (isSet(op.getFilePath())) {
+      if (op.getLine() < 0) {
+        return "line must be non-negative";
+      }
+      if (op.getColumn() < 0) {
+        return "column must be non-negative";
+      }
+      if (op.getOldName() != null && op.getOldName().trim().isEmpty()) {
+        return "oldName cannot be empty";
+      }
+      // -1 is the absent offset
+      if (op.getOffset() < -1) {
+        return "offset must be non-negative";
+      }
+      return null;
+    }
+    if (op.hasOffset()) {
+      return "offset can only be given with filePath";
+    }
+
+    if (op.getKind() != null && !KINDS.contains(op.getKind())) {
+      return "kind must be one of " + String.join(", ", KINDS);
+    }
+    if (isSet(op.getNamePattern())) {
+      try {
+        Pattern.compile(op.getNamePattern());
+      } catch (PatternSyntaxException ex) {
+        return "namePattern is not a valid regular expression: " + ex.getDescription();
+      }
+    }
+    return null;
+  }
+
+  static boolean isSet(String value) {
+    return value != null && !value.trim().isEmpty();
+  }
+
+  static String nextStringOrNull(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+}
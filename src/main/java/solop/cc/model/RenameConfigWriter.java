@@ -0,0 +1,62 @@
+package solop.cc.model;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming writer for the JSON rename configuration, the counterpart of {@link RenameConfigReader}.
+ * <p>
+ * Only the fields an operation sets are written. Operations with a pre-resolved offset keep
+ * their line and column too, so the manifest stays readable and its entries can be located
+ * by hand.
+ * </p>
+ */
+public class RenameConfigWriter {
+  private RenameConfigWriter() {
+  }
+
+  public static void write(RenameConfig config, Writer writer) throws IOException {
+    JsonWriter out = new JsonWriter(writer);
+    out.setIndent("  ");
+    out.beginObject();
+    if (config.getBasePath() != null) {
+      out.name(RenameConfigReader.BASE_PATH).value(config.getBasePath());
+    }
+    if (config.getChunkSize() != RenameConfigReader.DEFAULT_CHUNK_SIZE) {
+      out.name(RenameConfigReader.CHUNK_SIZE).value(config.getChunkSize());
+    }
+    out.name(RenameConfigReader.OPERATIONS).beginArray();
+    for (RenameConfig.RenameOperation op : config.getOperations()) {
+      writeOperation(out, op);
+    }
+    out.endArray();
+    out.endObject();
+    out.flush();
+  }
+
+  private static void writeOperation(JsonWriter out, RenameConfig.RenameOperation op) throws IOException {
+    out.beginObject();
+    if (op.getFilePath() != null) {
+      out.name("filePath").value(op.getFilePath());
+      out.name("line").value(op.getLine());
+      out.name("column").value(op.getColumn());
+      if (op.hasOffset()) {
+        out.name("offset").value(op.getOffset());
+      }
+    }
+    writeIfSet(out, "symbol", op.getSymbol());
+    writeIfSet(out, "namePattern", op.getNamePattern());
+    writeIfSet(out, "kind", op.getKind());
+    writeIfSet(out, "oldName", op.getOldName());
+    out.name("newName").value(op.getNewName());
+    out.endObject();
+  }
+
+  private static void writeIfSet(JsonWriter out, String name, String value) throws IOException {
+    if (value != null) {
+      out.name(name).value(value);
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package solop.cc.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Compact, column-oriented storage for rename operations.
+ * <p>
+ * File paths and new names are interned into string tables, and each operation is
+ * stored as four ints (line, column, path id, name id) in parallel primitive arrays.
+ * Millions of operations pointing at a few thousand files then cost a few bytes each
+ * instead of an object plus a duplicated path string. {@link #asList()} exposes the
+ * store as a list of {@link RenameConfig.RenameOperation}s, created on access.
+ * </p>
+ * <p>
+ * The savings apply to operations held in the store. Operations that are read from the list
+ * are separate objects, so callers that walk a chunk once, like the batch engine, still
+ * allocate one operation per entry; they are short-lived and only a chunk's worth at a time.
+ * Consecutive chunks of a stream are created with {@link #nextChunk()} and share the path
+ * table, so each path string exists once for the whole stream. New names are not shared,
+ * as they are mostly distinct and would grow with the stream.
+ * </p>
+ * <p>
+ * The selector columns of index lookup operations (symbol, name pattern and kind) are
+ * only allocated once the first such operation is added, so coordinate-only configs do
+ * not pay for them. The same goes for the expected old names, which share the string
+ * table of the new names, and for the pre-resolved offsets of exported configs.
+ * </p>
+ */
+public class RenameOperationStore {
+  private static final int INITIAL_CAPACITY = 64;
+  private static final byte NO_SELECTOR = 0;
+  private static final byte SYMBOL = 1;
+  private static final byte NAME_PATTERN = 2;
+
+  private final StringTable paths;
+  private final StringTable names = new StringTable();
+  private final StringTable selectors = new StringTable();
+  private int[] lines = new int[INITIAL_CAPACITY];
+  private int[] columns = new int[INITIAL_CAPACITY];
+  private int[] pathIds = new int[INITIAL_CAPACITY];
+  private int[] nameIds = new int[INITIAL_CAPACITY];
+  private byte[] selectorTypes;
+  private int[] selectorIds;
+  private int[] kindIds;
+  private int[] oldNameIds;
+  private int[] offsets;
+  private int size;
+
+  public RenameOperationStore() {
+    this(new StringTable());
+  }
+
+  private RenameOperationStore(StringTable paths) {
+    this.paths = paths;
+  }
+
+  /**
+   * Returns an empty store for the next chunk of a stream, sharing this store's file paths
+   */
+  public RenameOperationStore nextChunk() {
+    return new RenameOperationStore(paths);
+  }
+
+  public void add(String filePath, int line, int column, String newName) {
+    add(filePath, line, column, null, null, null, null, newName);
+  }
+
+  public void add(String filePath, int line, int column, String symbol, String namePattern, String kind,
+                  String oldName, String newName) {
+    add(filePath, line, column, symbol, namePattern, kind, oldName, newName, -1);
+  }
+
+  public void add(String filePath, int line, int column, String symbol, String namePattern, String kind,
+                  String oldName, String newName, int offset) {
+    if (size == lines.length) {
+      int capacity = size * 2;
+      lines = Arrays.copyOf(lines, capacity);
+      columns = Arrays.copyOf(columns, capacity);
+      pathIds = Arrays.copyOf(pathIds, capacity);
+      nameIds = Arrays.copyOf(nameIds, capacity);
+      if (selectorTypes != null) {
+        selectorTypes = Arrays.copyOf(selectorTypes, capacity);
+        selectorIds = Arrays.copyOf(selectorIds, capacity);
+        kindIds = Arrays.copyOf(kindIds, capacity);
+      }
+      if (oldNameIds != null) {
+        oldNameIds = Arrays.copyOf(oldNameIds, capacity);
+      }
+      if (offsets != null) {
+        offsets = Arrays.copyOf(offsets, capacity);
+      }
+    }
+    lines[size] = line;
+    columns[size] = column;
+    pathIds[size] = paths.intern(filePath);
+    nameIds[size] = names.intern(newName);
+
+    // Blank selectors count as absent, as in validation
+    boolean hasSymbol = RenameConfigReader.isSet(symbol);
+    if (hasSymbol || RenameConfigReader.isSet(namePattern)) {
+      if (selectorTypes == null) {
+        selectorTypes = new byte[lines.length];
+        selectorIds = new int[lines.length];
+        kindIds = new int[lines.length];
+      }
+      selectorTypes[size] = hasSymbol ? SYMBOL : NAME_PATTERN;
+      selectorIds[size] = selectors.intern(hasSymbol ? symbol : namePattern);
+      kindIds[size] = selectors.intern(kind);
+    } else if (selectorTypes != null) {
+      selectorTypes[size] = NO_SELECTOR;
+    }
+
+    if (oldName != null && oldNameIds == null) {
+      oldNameIds = new int[lines.length];
+      Arrays.fill(oldNameIds, 0, size, -1);
+    }
+    if (oldNameIds != null) {
+      oldNameIds[size] = oldName != null ? names.intern(oldName) : -1;
+    }
+
+    if (offset != -1 && offsets == null) {
+      offsets = new int[lines.length];
+      Arrays.fill(offsets, 0, size, -1);
+    }
+    if (offsets != null) {
+      offsets[size] = offset;
+    }
+    size++;
+  }
+
+  public void add(RenameConfig.RenameOperation op) {
+    add(op.getFilePath(), op.getLine(), op.getColumn(), op.getSymbol(), op.getNamePattern(), op.getKind(),
+        op.getOldName(), op.getNewName(), op.getOffset());
+  }
+
+  public void addAll(List<RenameConfig.RenameOperation> operations) {
+    for (RenameConfig.RenameOperation op : operations) {
+      add(op);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getFilePath(int index) {
+    return paths.get(pathIds[checkIndex(index)]);
+  }
+
+  public int getLine(int index) {
+    return lines[checkIndex(index)];
+  }
+
+  public int getColumn(int index) {
+    return columns[checkIndex(index)];
+  }
+
+  public String getNewName(int index) {
+    return names.get(nameIds[checkIndex(index)]);
+  }
+
+  public String getSymbol(int index) {
+    return getSelector(checkIndex(index), SYMBOL);
+  }
+
+  public String getNamePattern(int index) {
+    return getSelector(checkIndex(index), NAME_PATTERN);
+  }
+
+  public String getKind(int index) {
+    checkIndex(index);
+    return selectorTypes == null || selectorTypes[index] == NO_SELECTOR ? null : selectors.get(kindIds[index]);
+  }
+
+  public String getOldName(int index) {
+    checkIndex(index);
+    return oldNameIds == null || oldNameIds[index] < 0 ? null : names.get(oldNameIds[index]);
+  }
+
+  public int getOffset(int index) {
+    checkIndex(index);
+    return offsets == null ? -1 : offsets[index];
+  }
+
+  private String getSelector(int index, byte type) {
+    return selectorTypes != null && selectorTypes[index] == type ? selectors.get(selectorIds[index]) : null;
+  }
+
+  /**
+   * Returns the id of the operation's file path; operations on the same file share an id
+   */
+  public int getFilePathId(int index) {
+    return pathIds[checkIndex(index)];
+  }
+
+  /**
+   * Number of distinct file paths in the store, and in the chunks before it that share its paths
+   */
+  public int getFileCount() {
+    return paths.size();
+  }
+
+  public RenameConfig.RenameOperation get(int index) {
+    checkIndex(index);
+    return new RenameConfig.RenameOperation(paths.get(pathIds[index]), lines[index], columns[index],
+        getSelector(index, SYMBOL), getSelector(index, NAME_PATTERN), getKind(index), getOldName(index),
+        names.get(nameIds[index]), getOffset(index));
+  }
+
+  /**
+   * Returns a read-only list view of the store. Each access creates a new operation object.
+   */
+  public List<RenameConfig.RenameOperation> asList() {
+    return new OperationList();
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+    return index;
+  }
+
+  private class OperationList extends AbstractList<RenameConfig.RenameOperation> implements RandomAccess {
+    @Override
+    public RenameConfig.RenameOperation get(int index) {
+      return RenameOperationStore.this.get(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Maps each distinct string to a dense int id
+   */
+  private static class StringTable {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int intern(String value) {
+      Integer id = ids.get(value);
+      if (id == null) {
+        id = values.size();
+        ids.put(value, id);
+        values.add(value);
+      }
+      return id;
+    }
+
+    String get(int id) {
+      return values.get(id);
+    }
+
+    int size() {
+      return values.size();
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package solop.cc.ui;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.ui.ColoredTreeCellRenderer;
+import com.intellij.ui.DocumentAdapter;
+import com.intellij.ui.SearchTextField;
+import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.treeStructure.Tree;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import solop.cc.batch.BatchRenameOutcomeLog;
+import solop.cc.batch.BatchRenameResult;
+
+import javax.swing.JPanel;
+import javax.swing.JTree;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.BorderLayout;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Browses the outcomes of one batch rename run, grouped into failed, conflicting and
+ * succeeded operations.
+ * <p>
+ * Outcomes are not held in memory: a group reads its first page from the run's outcome log
+ * on a pooled thread when it is expanded, and the next page when its "Load more" node is
+ * selected. The filter is matched against locations, new names and reasons while reading,
+ * so a page is always full of matches. Typing in the filter restarts the expanded groups;
+ * pages still loading for an older filter are dropped.
+ * </p>
+ */
+public class BatchRenameOutcomeView extends JPanel implements Disposable {
+  private static final int PAGE_SIZE = 500;
+  private static final int FILTER_DELAY_MS = 300;
+  private static final String LOADING = "Loading...";
+  private static final String LOAD_MORE = "Load more...";
+
+  private final @Nullable Path outcomeFile;
+  private final List<String> failureSample;
+  private final SearchTextField filterField = new SearchTextField(false);
+  private final DefaultMutableTreeNode root = new DefaultMutableTreeNode();
+  private final DefaultTreeModel model = new DefaultTreeModel(root);
+  private final Tree tree = new Tree(model);
+  private final List<Group> groups = new ArrayList<>();
+  private final Alarm filterAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, this);
+  private final AtomicInteger generation = new AtomicInteger();
+  private volatile boolean disposed;
+  private String filter = "";
+
+  /**
+   * A group of outcomes with one status, and how far it has been read from the log
+   */
+  private static class Group extends DefaultMutableTreeNode {
+    final BatchRenameOutcomeLog.Status status;
+    final String title;
+    final int total;
+    boolean started;
+    boolean loading;
+    long position;
+
+    Group(BatchRenameOutcomeLog.Status status, String title, int total) {
+      this.status = status;
+      this.title = title;
+      this.total = total;
+    }
+  }
+
+  public BatchRenameOutcomeView(BatchRenameResult result) {
+    super(new BorderLayout());
+    outcomeFile = result.getOutcomeFile();
+    failureSample = result.getFailureSample();
+
+    // Conflicts are counted as failures too, but listed in their own group
+    addGroup(BatchRenameOutcomeLog.Status.FAILED, "Failed", result.getFailed() - result.getConflicts());
+    addGroup(BatchRenameOutcomeLog.Status.CONFLICT, "Conflicts", result.getConflicts());
+    addGroup(BatchRenameOutcomeLog.Status.SUCCEEDED, "Succeeded", result.getSucceeded());
+
+    tree.setRootVisible(false);
+    tree.setShowsRootHandles(true);
+    tree.setCellRenderer(new OutcomeRenderer());
+    tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+      @Override
+      public void treeWillExpand(TreeExpansionEvent event) {
+        if (event.getPath().getLastPathComponent() instanceof Group group && !group.started) {
+          loadPage(group);
+        }
+      }
+
+      @Override
+      public void treeWillCollapse(TreeExpansionEvent event) {
+      }
+    });
+    tree.addTreeSelectionListener(event -> {
+      if (tree.getLastSelectedPathComponent() instanceof DefaultMutableTreeNode node
+          && LOAD_MORE.equals(node.getUserObject()) && node.getParent() instanceof Group group) {
+        loadPage(group);
+      }
+    });
+
+    filterField.addDocumentListener(new DocumentAdapter() {
+      @Override
+      protected void textChanged(@NotNull DocumentEvent e) {
+        filterAlarm.cancelAllRequests();
+        filterAlarm.addRequest(() -> applyFilter(filterField.getText()), FILTER_DELAY_MS);
+      }
+    });
+
+    add(filterField, BorderLayout.NORTH);
+    add(new JBScrollPane(tree), BorderLayout.CENTER);
+
+    if (outcomeFile == null) {
+      // Without a log only the sampled failures are known
+      for (Group group : groups) {
+        group.started = true;
+        group.removeAllChildren();
+      }
+      for (String line : failureSample) {
+        groups.get(0).add(new DefaultMutableTreeNode(line, false));
+      }
+    }
+    model.reload();
+  }
+
+  private void addGroup(BatchRenameOutcomeLog.Status status, String title, int total) {
+    Group group = new Group(status, title, total);
+    group.add(new DefaultMutableTreeNode(LOADING));
+    groups.add(group);
+    root.add(group);
+  }
+
+  /**
+   * Restarts every group with a new filter, reloading the groups that are expanded
+   */
+  private void applyFilter(String text) {
+    String newFilter = text.trim().toLowerCase(Locale.ROOT);
+    if (newFilter.equals(filter) || outcomeFile == null) return;
+    filter = newFilter;
+    generation.incrementAndGet();
+
+    for (Group group : groups) {
+      boolean expanded = tree.isExpanded(new TreePath(group.getPath()));
+      group.started = false;
+      group.loading = false;
+      group.position = 0;
+      group.removeAllChildren();
+      group.add(new DefaultMutableTreeNode(LOADING));
+      model.nodeStructureChanged(group);
+      if (expanded) {
+        tree.expandPath(new TreePath(group.getPath()));
+        loadPage(group);
+      }
+    }
+  }
+
+  /**
+   * Reads the next page of a group on a pooled thread and appends it on the EDT
+   */
+  private void loadPage(Group group) {
+    if (group.loading || group.position < 0 || outcomeFile == null) return;
+    group.started = true;
+    group.loading = true;
+
+    int loadGeneration = generation.get();
+    long position = group.position;
+    String pageFilter = filter;
+    AppExecutorUtil.getAppExecutorService().execute(() -> {
+      List<BatchRenameOutcomeLog.Outcome> page = new ArrayList<>();
+      long next;
+      String error = null;
+      try {
+        next = BatchRenameOutcomeLog.read(outcomeFile, position, PAGE_SIZE,
+            outcome -> outcome.status() == group.status && matches(outcome, pageFilter), page);
+      } catch (IOException ex) {
+        next = -1;
+        error = "Cannot read " + outcomeFile + ": " + ex.getMessage();
+      }
+
+      long nextPosition = next;
+      String readError = error;
+      ApplicationManager.getApplication().invokeLater(() -> {
+        if (generation.get() != loadGeneration) return;
+        appendPage(group, page, nextPosition, readError);
+      }, ModalityState.any(), ignored -> disposed);
+    });
+  }
+
+  private void appendPage(Group group, List<BatchRenameOutcomeLog.Outcome> page, long next, String error) {
+    // Drop the "Loading" or "Load more" node the page replaces
+    if (group.getChildCount() > 0
+        && !(((DefaultMutableTreeNode) group.getLastChild()).getUserObject() instanceof BatchRenameOutcomeLog.Outcome)) {
+      group.remove(group.getChildCount() - 1);
+    }
+    for (BatchRenameOutcomeLog.Outcome outcome : page) {
+      group.add(new DefaultMutableTreeNode(outcome, false));
+    }
+    if (error != null) {
+      group.add(new DefaultMutableTreeNode(error, false));
+    } else if (next >= 0) {
+      group.add(new DefaultMutableTreeNode(LOAD_MORE, false));
+    }
+    group.position = next;
+    group.loading = false;
+    model.nodeStructureChanged(group);
+  }
+
+  private static boolean matches(BatchRenameOutcomeLog.Outcome outcome, String filter) {
+    return filter.isEmpty()
+        || outcome.location().toLowerCase(Locale.ROOT).contains(filter)
+        || outcome.detail().toLowerCase(Locale.ROOT).contains(filter);
+  }
+
+  @Override
+  public void dispose() {
+    disposed = true;
+    generation.incrementAndGet();
+  }
+
+  private static class OutcomeRenderer extends ColoredTreeCellRenderer {
+    @Override
+    public void customizeCellRenderer(@NotNull JTree tree, Object value, boolean selected, boolean expanded,
+                                      boolean leaf, int row, boolean hasFocus) {
+      if (value instanceof Group group) {
+        setIcon(switch (group.status) {
+          case SUCCEEDED -> AllIcons.RunConfigurations.TestPassed;
+          case FAILED -> AllIcons.RunConfigurations.TestFailed;
+          case CONFLICT -> AllIcons.General.Warning;
+        });
+        append(group.title);
+        append(" " + group.total, SimpleTextAttributes.GRAYED_ATTRIBUTES);
+        return;
+      }
+
+      Object object = value instanceof DefaultMutableTreeNode node ? node.getUserObject() : value;
+      if (object instanceof BatchRenameOutcomeLog.Outcome outcome) {
+        append(outcome.location());
+        String separator = outcome.status() == BatchRenameOutcomeLog.Status.SUCCEEDED ? " → " : ": ";
+        append(separator + outcome.detail(), SimpleTextAttributes.GRAYED_ATTRIBUTES);
+      } else if (LOAD_MORE.equals(object)) {
+        append(LOAD_MORE, SimpleTextAttributes.LINK_ATTRIBUTES);
+      } else if (object != null) {
+        append(object.toString(), SimpleTextAttributes.GRAYED_ATTRIBUTES);
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package solop.cc.ui;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.content.ContentManager;
+import org.jetbrains.annotations.NotNull;
+import solop.cc.batch.BatchRenameResult;
+
+/**
+ * Tool window listing the outcomes of batch rename runs, one tab per run.
+ * <p>
+ * The window stays hidden until the first run finishes in a project.
+ * </p>
+ */
+public class BatchRenameToolWindowFactory implements ToolWindowFactory, DumbAware {
+  public static final String ID = "Batch Rename";
+
+  @Override
+  public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+    // Tabs are only added by showRun
+  }
+
+  @Override
+  public boolean shouldBeAvailable(@NotNull Project project) {
+    return false;
+  }
+
+  /**
+   * Adds a tab for a finished run and brings the tool window up. Must be called on the EDT.
+   */
+  public static void showRun(Project project, String title, BatchRenameResult result) {
+    ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow(ID);
+    if (toolWindow == null) return;
+
+    BatchRenameOutcomeView view = new BatchRenameOutcomeView(result);
+    Content content = ContentFactory.getInstance().createContent(view, title, false);
+    content.setDisposer(view);
+    ContentManager contents = toolWindow.getContentManager();
+    contents.addContent(content);
+    contents.setSelectedContent(content);
+    toolWindow.setAvailable(true);
+    toolWindow.show();
+  }
+}
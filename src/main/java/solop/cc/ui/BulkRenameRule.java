@@ -0,0 +1,190 @@
+package solop.cc.ui;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * A find/replace rule for renaming many symbols at once.
+ * <p>
+ * The find text is either a literal or a regular expression; regex replacements can refer
+ * to capture groups as {@code $1}, {@code ${name}} and so on. The replaced name is then
+ * optionally converted to a case style. The pattern is compiled once per rule and the rule
+ * is stateless, so it can be applied to many names in parallel.
+ * </p>
+ */
+public class BulkRenameRule {
+  private static final int PARALLEL_THRESHOLD = 2000;
+
+  /**
+   * Case conversion applied to a name after the replacement
+   */
+  public enum CaseStyle {
+    KEEP("Keep as is"),
+    CAMEL("camelCase"),
+    PASCAL("PascalCase"),
+    SNAKE("snake_case"),
+    UPPER_SNAKE("UPPER_SNAKE_CASE");
+
+    private final String label;
+
+    CaseStyle(String label) {
+      this.label = label;
+    }
+
+    @Override
+    public String toString() {
+      return label;
+    }
+  }
+
+  private final String find;
+  private final Pattern pattern;
+  private final String replacement;
+  private final CaseStyle caseStyle;
+
+  private BulkRenameRule(String find, @Nullable Pattern pattern, String replacement, CaseStyle caseStyle) {
+    this.find = find;
+    this.pattern = pattern;
+    this.replacement = replacement;
+    this.caseStyle = caseStyle;
+  }
+
+  /**
+   * Creates a rule, compiling the find text if it is a regular expression.
+   *
+   * @throws IllegalArgumentException if the find text is empty, or is not a valid regular
+   *     expression, or the replacement refers to a group the pattern does not have
+   */
+  public static BulkRenameRule create(String find, String replacement, boolean regex, CaseStyle caseStyle) {
+    if (find.isEmpty()) {
+      throw new IllegalArgumentException("Find pattern cannot be empty");
+    }
+    if (!regex) {
+      return new BulkRenameRule(find, null, replacement, caseStyle);
+    }
+
+    Pattern pattern = Pattern.compile(find);
+    // Check the group references once here instead of failing on the first matching name;
+    // the empty alternative makes the probe match even where the pattern itself does not
+    try {
+      Pattern.compile("(?:" + find + ")|").matcher("").replaceFirst(replacement);
+    } catch (IndexOutOfBoundsException ex) {
+      throw new IllegalArgumentException(ex.getMessage(), ex);
+    }
+    return new BulkRenameRule(find, pattern, replacement, caseStyle);
+  }
+
+  /**
+   * Computes the new name for a symbol.
+   *
+   * @return the new name, or null if the rule does not match the name or leaves it as it is
+   */
+  @Nullable
+  public String apply(String name) {
+    String replaced;
+    if (pattern == null) {
+      if (!name.contains(find)) {
+        return null;
+      }
+      replaced = name.replace(find, replacement);
+    } else {
+      Matcher matcher = pattern.matcher(name);
+      if (!matcher.find()) {
+        return null;
+      }
+      replaced = matcher.replaceAll(replacement);
+    }
+    String converted = convertCase(replaced, caseStyle);
+    return converted.equals(name) ? null : converted;
+  }
+
+  /**
+   * Applies the rule to every name; large lists are evaluated in parallel.
+   *
+   * @return the new names by index, null where the rule does not change the name
+   */
+  public String[] applyAll(String[] names) {
+    String[] newNames = new String[names.length];
+    IntStream indices = IntStream.range(0, names.length);
+    if (names.length >= PARALLEL_THRESHOLD) {
+      indices = indices.parallel();
+    }
+    indices.forEach(i -> newNames[i] = apply(names[i]));
+    return newNames;
+  }
+
+  /**
+   * Counts the names the rule would change, the non-null entries {@link #applyAll} would return
+   */
+  public int countChanges(String[] names) {
+    IntStream indices = IntStream.range(0, names.length);
+    if (names.length >= PARALLEL_THRESHOLD) {
+      indices = indices.parallel();
+    }
+    return (int) indices.filter(i -> apply(names[i]) != null).count();
+  }
+
+  static String convertCase(String name, CaseStyle style) {
+    if (style == CaseStyle.KEEP) {
+      return name;
+    }
+
+    List<String> words = splitWords(name);
+    StringBuilder result = new StringBuilder(name.length() + words.size());
+    for (int i = 0; i < words.size(); i++) {
+      String word = words.get(i).toLowerCase(Locale.ROOT);
+      switch (style) {
+        case CAMEL -> result.append(i == 0 ? word : capitalize(word));
+        case PASCAL -> result.append(capitalize(word));
+        case SNAKE -> result.append(i == 0 ? "" : "_").append(word);
+        case UPPER_SNAKE -> result.append(i == 0 ? "" : "_").append(word.toUpperCase(Locale.ROOT));
+        default -> result.append(word);
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Splits a name into words at underscores, dashes, spaces and camel-case humps,
+   * keeping acronyms such as {@code HTTP} in {@code HTTPServer} together
+   */
+  static List<String> splitWords(String name) {
+    List<String> words = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!Character.isLetterOrDigit(c)) {
+        if (start >= 0) {
+          words.add(name.substring(start, i));
+          start = -1;
+        }
+        continue;
+      }
+
+      if (start >= 0 && Character.isUpperCase(c)) {
+        char previous = name.charAt(i - 1);
+        boolean nextIsLower = i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1));
+        if (!Character.isUpperCase(previous) || nextIsLower) {
+          words.add(name.substring(start, i));
+          start = i;
+        }
+      } else if (start < 0) {
+        start = i;
+      }
+    }
+    if (start >= 0) {
+      words.add(name.substring(start));
+    }
+    return words;
+  }
+
+  private static String capitalize(String word) {
+    return word.isEmpty() ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1);
+  }
+}
@@ -0,0 +1,156 @@
+package solop.cc.ui;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.ui.ValidationInfo;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.Nullable;
+import solop.cc.ui.BulkRenameRule.CaseStyle;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asks for a bulk find/replace rule and previews how many symbols it would rename.
+ */
+public class BulkReplaceDialog extends DialogWrapper {
+  private static final int PREVIEW_DELAY_MS = 200;
+
+  private final String[] names;
+  private final Alarm previewAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, getDisposable());
+  private final AtomicInteger previewGeneration = new AtomicInteger();
+  private JBTextField findField;
+  private JBTextField replaceField;
+  private JBCheckBox regexCheckBox;
+  private ComboBox<CaseStyle> caseStyleComboBox;
+  private JBLabel previewLabel;
+
+  /**
+   * @param names the original names of the symbols the rule will be applied to
+   */
+  public BulkReplaceDialog(Project project, String[] names) {
+    super(project);
+    this.names = names;
+    init();
+    setTitle("Bulk Find/Replace");
+  }
+
+  @Nullable
+  @Override
+  protected JComponent createCenterPanel() {
+    findField = new JBTextField(30);
+    replaceField = new JBTextField(30);
+    regexCheckBox = new JBCheckBox("Regular expression");
+    regexCheckBox.setToolTipText("Use $1, $2 or ${name} in the replacement to insert capture groups");
+    caseStyleComboBox = new ComboBox<>(CaseStyle.values());
+    previewLabel = new JBLabel(" ");
+
+    DocumentListener listener = new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        schedulePreview();
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        schedulePreview();
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+        schedulePreview();
+      }
+    };
+    findField.getDocument().addDocumentListener(listener);
+    replaceField.getDocument().addDocumentListener(listener);
+    regexCheckBox.addActionListener(e -> schedulePreview());
+    caseStyleComboBox.addActionListener(e -> schedulePreview());
+
+    JPanel fields = new JPanel(new GridLayout(4, 2, 5, 5));
+    fields.add(new JLabel("Find pattern:"));
+    fields.add(findField);
+    fields.add(new JLabel("Replace with:"));
+    fields.add(replaceField);
+    fields.add(new JLabel("Convert case:"));
+    fields.add(caseStyleComboBox);
+    fields.add(new JLabel());
+    fields.add(regexCheckBox);
+
+    JPanel panel = new JPanel(new BorderLayout(0, 10));
+    panel.add(fields, BorderLayout.CENTER);
+    panel.add(previewLabel, BorderLayout.SOUTH);
+    return panel;
+  }
+
+  @Nullable
+  @Override
+  public JComponent getPreferredFocusedComponent() {
+    return findField;
+  }
+
+  @Nullable
+  @Override
+  protected ValidationInfo doValidate() {
+    try {
+      createRule();
+      return null;
+    } catch (IllegalArgumentException ex) {
+      return new ValidationInfo(ex.getMessage(), findField);
+    }
+  }
+
+  /**
+   * Returns the rule entered by the user; only valid after the dialog was closed with OK
+   */
+  public BulkRenameRule getRule() {
+    return createRule();
+  }
+
+  private BulkRenameRule createRule() {
+    return BulkRenameRule.create(findField.getText(), replaceField.getText(), regexCheckBox.isSelected(),
+        (CaseStyle) caseStyleComboBox.getSelectedItem());
+  }
+
+  /**
+   * Recounts the matching symbols once typing pauses. The count runs on a pooled thread; a
+   * result is dropped if the rule changed again in the meantime.
+   */
+  private void schedulePreview() {
+    int generation = previewGeneration.incrementAndGet();
+    previewAlarm.cancelAllRequests();
+    previewAlarm.addRequest(() -> {
+      BulkRenameRule rule;
+      try {
+        rule = createRule();
+      } catch (IllegalArgumentException ex) {
+        showPreview(ex.getMessage(), JBColor.RED);
+        return;
+      }
+
+      AppExecutorUtil.getAppExecutorService().execute(() -> {
+        int count = rule.countChanges(names);
+        ApplicationManager.getApplication().invokeLater(() -> {
+          if (generation == previewGeneration.get() && !isDisposed()) {
+            showPreview(count + " of " + names.length + " symbol(s) will be renamed", JBColor.foreground());
+          }
+        }, ModalityState.any());
+      });
+    }, PREVIEW_DELAY_MS, ModalityState.any());
+  }
+
+  private void showPreview(String text, Color color) {
+    previewLabel.setForeground(color);
+    previewLabel.setText(text);
+  }
+}
@@ -1,10 +1,12 @@
 package solop.cc.ui;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.JBScrollPane;
+import solop.cc.model.IncrementalConfigValidator;
 import solop.cc.model.RenameConfig;
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import solop.cc.model.RenameConfigReader;
 import com.intellij.openapi.fileChooser.FileChooser;
 import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.project.Project;
@@ -14,7 +16,8 @@ import com.intellij.openapi.ui.ValidationInfo;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBTabbedPane;
-import org.jetbrains.annotations.NotNull;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
@@ -22,14 +25,29 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 public class JsonInputDialog extends DialogWrapper {
+  private static final int VALIDATION_DELAY_MS = 300;
+
   private final Project project;
+  private final Alarm validationAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, getDisposable());
+  private final AtomicInteger validationGeneration = new AtomicInteger();
+  private final IncrementalConfigValidator textValidator = new IncrementalConfigValidator();
+  // Outcome of the last background validation and the input generation it was for; EDT only
+  private int validatedGeneration = -1;
+  private ValidationInfo validationResult;
   private JTextArea jsonTextArea;
   private VirtualFile selectedFile;
   private JBTabbedPane tabbedPane;
   private JLabel filePathLabel;
   private JBLabel validationMessageLabel;
+  private JCheckBox dryRunCheckBox;
 
   public JsonInputDialog(Project project) {
     super(project);
@@ -115,8 +133,14 @@ public class JsonInputDialog extends DialogWrapper {
     tabbedPane.addTab("Paste JSON", jsonInputPanel);
     tabbedPane.addTab("Select File", fileSelectPanel);
 
+    dryRunCheckBox = new JCheckBox("Dry run: report the files and usages that would change without renaming");
+
+    JPanel southPanel = new JPanel(new BorderLayout());
+    southPanel.add(dryRunCheckBox, BorderLayout.NORTH);
+    southPanel.add(validationMessageLabel, BorderLayout.SOUTH);
+
     panel.add(tabbedPane, BorderLayout.CENTER);
-    panel.add(validationMessageLabel, BorderLayout.SOUTH);
+    panel.add(southPanel, BorderLayout.SOUTH);
 
     return panel;
   }
@@ -135,43 +159,79 @@ public class JsonInputDialog extends DialogWrapper {
     }
   }
 
+  /**
+   * Schedules validation of the current input. Validation is debounced, runs on a pooled
+   * thread, and any run that is still in progress when the input changes again is cancelled.
+   */
   private void validateInput() {
-    ValidationInfo validationInfo = doValidate();
-    if (validationInfo != null) {
-      validationMessageLabel.setText(validationInfo.message);
-      setOKActionEnabled(false);
-    } else {
-      validationMessageLabel.setText("");
-      setOKActionEnabled(true);
-    }
+    int generation = validationGeneration.incrementAndGet();
+    setOKActionEnabled(false);
+    validationAlarm.cancelAllRequests();
+    validationAlarm.addRequest(() -> startValidation(generation), VALIDATION_DELAY_MS, ModalityState.any());
+  }
+
+  private void startValidation(int generation) {
+    int selectedTab = tabbedPane.getSelectedIndex();
+    String jsonText = selectedTab == 0 ? jsonTextArea.getText() : null;
+    VirtualFile file = selectedFile;
+    BooleanSupplier isStale = () -> validationGeneration.get() != generation;
+
+    AppExecutorUtil.getAppExecutorService().execute(() -> {
+      ValidationInfo validationInfo;
+      try {
+        validationInfo = validate(selectedTab, jsonText, file, isStale);
+      } catch (CancellationException e) {
+        return; // Superseded by a newer edit
+      }
+
+      ApplicationManager.getApplication().invokeLater(() -> {
+        if (isStale.getAsBoolean() || isDisposed()) return;
+        validatedGeneration = generation;
+        validationResult = validationInfo;
+        if (validationInfo != null) {
+          validationMessageLabel.setText(validationInfo.message);
+          setOKActionEnabled(false);
+        } else {
+          validationMessageLabel.setText("");
+          setOKActionEnabled(true);
+        }
+      }, ModalityState.any());
+    });
   }
 
+  /**
+   * Returns the result of the background validation of the current input. The input is not
+   * validated again here, as that could mean scanning a whole configuration file on the EDT.
+   */
   @Nullable
   @Override
   protected ValidationInfo doValidate() {
-    int selectedTab = tabbedPane.getSelectedIndex();
+    if (validatedGeneration != validationGeneration.get()) {
+      return new ValidationInfo("The configuration is still being validated");
+    }
+    return validationResult;
+  }
 
+  @Nullable
+  private ValidationInfo validate(int selectedTab, @Nullable String jsonText, @Nullable VirtualFile file,
+                                  BooleanSupplier isCancelled) {
     if (selectedTab == 0) {
-      String jsonText = jsonTextArea.getText();
-      if (jsonText.trim().isEmpty()) {
+      if (jsonText == null || jsonText.isBlank()) {
         return new ValidationInfo("Please enter JSON configuration");
       }
 
-      try {
-        validateJsonContent(jsonText);
-        return null;
-      } catch (Exception e) {
-        return new ValidationInfo("Invalid JSON: " + e.getMessage());
-      }
+      String problem = textValidator.validate(jsonText, isCancelled);
+      return problem != null ? new ValidationInfo("Invalid JSON: " + problem) : null;
     } else {
-      if (selectedFile == null) {
+      if (file == null) {
         return new ValidationInfo("Please select a JSON file");
       }
 
-      try {
-        String content = new String(selectedFile.contentsToByteArray());
-        validateJsonContent(content);
+      try (Reader reader = openReader(file)) {
+        RenameConfigReader.scan(reader, isCancelled);
         return null;
+      } catch (CancellationException e) {
+        throw e;
       } catch (IOException e) {
         return new ValidationInfo("Error reading file: " + e.getMessage());
       } catch (Exception e) {
@@ -180,63 +240,43 @@ public class JsonInputDialog extends DialogWrapper {
     }
   }
 
-  private void validateJsonContent(String jsonContent) {
-    Gson gson = new Gson();
-    try {
-      RenameConfig config = gson.fromJson(jsonContent, RenameConfig.class);
-
-      if (config == null) {
-        throw new IllegalArgumentException("JSON could not be parsed to configuration");
-      }
-
-      if (config.getOperations() == null || config.getOperations().isEmpty()) {
-        throw new IllegalArgumentException("No rename operations found in configuration");
-      }
-
-      for (int i = 0; i < config.getOperations().size(); i++) {
-        RenameConfig.RenameOperation op = getRenameOperation(config, i);
-        if (op.getColumn() < 0) {
-          throw new IllegalArgumentException("Operation #" + (i+1) + ": column must be non-negative");
-        }
-      }
-    } catch (JsonSyntaxException e) {
-      throw new IllegalArgumentException("JSON syntax error: " + e.getMessage());
-    }
-  }
-
-  private static RenameConfig.@NotNull RenameOperation getRenameOperation(RenameConfig config, int i) {
-    RenameConfig.RenameOperation op = config.getOperations().get(i);
-    if (op.getFilePath() == null || op.getFilePath().trim().isEmpty()) {
-      throw new IllegalArgumentException("Operation #" + (i +1) + ": filePath is required");
-    }
-    if (op.getNewName() == null || op.getNewName().trim().isEmpty()) {
-      throw new IllegalArgumentException("Operation #" + (i +1) + ": newName is required");
-    }
-    if (op.getLine() < 0) {
-      throw new IllegalArgumentException("Operation #" + (i +1) + ": line must be non-negative");
-    }
-    return op;
-  }
-
+  /**
+   * Returns the configuration entered in the dialog, fully loaded into memory.
+   * Configurations selected from a file should be streamed via {@link #getConfigFile()} instead.
+   */
   public RenameConfig getConfig() {
     int selectedTab = tabbedPane.getSelectedIndex();
-    String jsonContent;
 
-    try {
-      if (selectedTab == 0) {
-        jsonContent = jsonTextArea.getText();
-      } else {
-        jsonContent = new String(selectedFile.contentsToByteArray());
-      }
-
-      Gson gson = new Gson();
-      return gson.fromJson(jsonContent, RenameConfig.class);
+    try (Reader reader = selectedTab == 0 ? new StringReader(jsonTextArea.getText()) : openReader(selectedFile)) {
+      return RenameConfigReader.readConfig(reader);
     } catch (Exception e) {
       Messages.showErrorDialog("Error parsing JSON: " + e.getMessage(), "Error");
       return null;
     }
   }
 
+  /**
+   * Returns the selected configuration file if the configuration comes from a file, null otherwise
+   */
+  @Nullable
+  public VirtualFile getConfigFile() {
+    return tabbedPane.getSelectedIndex() == 1 ? selectedFile : null;
+  }
+
+  /**
+   * Whether the configuration should only be previewed instead of applied
+   */
+  public boolean isDryRun() {
+    return dryRunCheckBox.isSelected();
+  }
+
+  /**
+   * Opens a reader over a configuration file without loading it into memory
+   */
+  public static Reader openReader(VirtualFile file) throws IOException {
+    return new InputStreamReader(file.getInputStream(), file.getCharset());
+  }
+
   @Override
   protected void init() {
     super.init();
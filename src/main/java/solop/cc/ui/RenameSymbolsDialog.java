@@ -1,15 +1,38 @@
 package solop.cc.ui;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.ValidationInfo;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.util.PsiUtilCore;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.table.JBTable;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.Nullable;
+import solop.cc.batch.BatchConflictDetector;
+import solop.cc.model.RenameConfig;
+import solop.cc.model.RenameConfigWriter;
 import javax.swing.AbstractAction;
 import javax.swing.DefaultCellEditor;
 import javax.swing.KeyStroke;
@@ -18,27 +41,53 @@ import javax.swing.table.TableCellEditor;
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.awt.*;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class RenameSymbolsDialog extends DialogWrapper {
     private final Project project;
     private final List<SymbolRenameInfo> symbols;
+    // Symbols from several files get a File column, with the rows of each file kept together
+    private final boolean multipleFiles;
     private JBTable symbolsTable;
     private SymbolTableModel tableModel;
     private JBLabel statusLabel;
     private JTextField searchField;
+    private boolean loading;
+    private final SymbolSearchIndex searchIndex = new SymbolSearchIndex();
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+
+    /**
+     * Supplies the dialog's symbols in batches. Called on a background thread; the
+     * indicator is cancelled when the dialog is closed.
+     */
+    public interface SymbolLoader {
+        void load(Consumer<List<SymbolRenameInfo>> batches, ProgressIndicator indicator);
+    }
 
     public static class SymbolRenameInfo {
         private final PsiNamedElement element;
+        private final VirtualFile file;
         private final String originalName;
+        private final String typeName;
         private String newName;
         private final int offset;
 
         public SymbolRenameInfo(PsiNamedElement element, int offset) {
             this.element = element;
+            this.file = PsiUtilCore.getVirtualFile(element);
             this.originalName = element.getName();
+            // Computed once here, so painting the table does not inspect the element again
+            this.typeName = getSymbolTypeName(element);
             this.newName = "";
             this.offset = offset;
         }
@@ -47,10 +96,19 @@ public class RenameSymbolsDialog extends DialogWrapper {
             return element;
         }
 
+        @Nullable
+        public VirtualFile getFile() {
+            return file;
+        }
+
         public String getOriginalName() {
             return originalName;
         }
 
+        public String getTypeName() {
+            return typeName;
+        }
+
         public String getNewName() {
             return newName;
         }
@@ -66,16 +124,101 @@ public class RenameSymbolsDialog extends DialogWrapper {
         public boolean hasNewName() {
             return newName != null && !newName.isEmpty() && !newName.equals(originalName);
         }
+
+        /**
+         * Determines the symbol type name from the PsiElement
+         */
+        private static String getSymbolTypeName(PsiNamedElement element) {
+            String className = element.getClass().getSimpleName();
+
+            if (className.contains("Class")) return "Class";
+            if (className.contains("Method")) return "Method";
+            if (className.contains("Field")) return "Field";
+            if (className.contains("Variable")) return "Variable";
+            if (className.contains("Parameter")) return "Parameter";
+            if (className.contains("Interface")) return "Interface";
+            if (className.contains("Enum")) return "Enum";
+            if (className.contains("Constant")) return "Constant";
+
+            return className;
+        }
     }
 
     public RenameSymbolsDialog(Project project, List<SymbolRenameInfo> symbols) {
+        this(project, symbols, false);
+    }
+
+    private RenameSymbolsDialog(Project project, List<SymbolRenameInfo> symbols, boolean multipleFiles) {
         super(project);
         this.project = project;
         this.symbols = symbols;
+        this.multipleFiles = multipleFiles;
+        searchIndex.addAll(symbols);
         init();
         setTitle("Rename Symbols");
     }
 
+    /**
+     * Creates a dialog that opens right away and fills its table as the loader delivers symbols
+     */
+    public RenameSymbolsDialog(Project project, SymbolLoader loader) {
+        this(project, loader, false);
+    }
+
+    /**
+     * Creates a dialog that fills its table as the loader delivers symbols, showing which file
+     * each symbol is in if they come from several files
+     */
+    public RenameSymbolsDialog(Project project, SymbolLoader loader, boolean multipleFiles) {
+        this(project, new ArrayList<>(), multipleFiles);
+        startLoading(loader);
+    }
+
+    /**
+     * Runs the loader on a pooled thread and appends each batch to the table on the EDT
+     */
+    private void startLoading(SymbolLoader loader) {
+        ProgressIndicator indicator = new EmptyProgressIndicator();
+        Disposer.register(getDisposable(), indicator::cancel);
+        loading = true;
+        updateLoadingStatus();
+
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            try {
+                ProgressManager.getInstance().runProcess(() -> loader.load(batch ->
+                    ApplicationManager.getApplication().invokeLater(() -> {
+                        tableModel.appendRows(batch);
+                        updateLoadingStatus();
+                    }, ModalityState.any(), ignored -> isDisposed()), indicator), indicator);
+            } catch (ProcessCanceledException ignored) {
+                // The dialog was closed while loading
+            } finally {
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    loading = false;
+                    updateLoadingStatus();
+                    // Rows that arrived after the last search should be matched as well
+                    if (!searchField.getText().isEmpty()) {
+                        filterSymbols();
+                    }
+                }, ModalityState.any(), ignored -> isDisposed());
+            }
+        });
+    }
+
+    private void updateLoadingStatus() {
+        if (loading) {
+            statusLabel.setForeground(JBColor.GRAY);
+            statusLabel.setText("Loading symbols... " + symbols.size() + " found");
+        } else if (symbols.isEmpty()) {
+            statusLabel.setForeground(JBColor.RED);
+            statusLabel.setText(multipleFiles
+                ? "No renamable symbols found in the selected files."
+                : "No renamable symbols found in the current file.");
+        } else if (statusLabel.getText().startsWith("Loading symbols")) {
+            statusLabel.setText("");
+        }
+    }
+
     @Nullable
     @Override
     protected JComponent createCenterPanel() {
@@ -83,7 +226,9 @@ public class RenameSymbolsDialog extends DialogWrapper {
 
         // Create header with search field
         JPanel headerPanel = new JPanel(new BorderLayout());
-        JBLabel headerLabel = new JBLabel("Specify new names for symbols in the current file:");
+        JBLabel headerLabel = new JBLabel(multipleFiles
+            ? "Specify new names for symbols in the selected files:"
+            : "Specify new names for symbols in the current file:");
         headerLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
 
         // Add search field
@@ -116,14 +261,17 @@ public class RenameSymbolsDialog extends DialogWrapper {
         JButton copyToClipboardButton = new JButton("Copy Selected Symbol");
         JButton copyAllButton = new JButton("Copy All Symbols");
         JButton bulkReplaceButton = new JButton("Bulk Find/Replace");
+        JButton exportButton = new JButton("Export as JSON...");
 
         copyToClipboardButton.addActionListener(e -> copySelectedSymbolToClipboard());
         copyAllButton.addActionListener(e -> copyAllSymbolsToClipboard());
         bulkReplaceButton.addActionListener(e -> showBulkReplaceDialog());
+        exportButton.addActionListener(e -> exportRenames());
 
         actionPanel.add(copyToClipboardButton);
         actionPanel.add(copyAllButton);
         actionPanel.add(bulkReplaceButton);
+        actionPanel.add(exportButton);
 
         JPanel topPanel = new JPanel(new BorderLayout());
         topPanel.add(headerLabel, BorderLayout.NORTH);
@@ -134,14 +282,18 @@ public class RenameSymbolsDialog extends DialogWrapper {
         // Create table
         tableModel = new SymbolTableModel(symbols);
         symbolsTable = new JBTable(tableModel);
-        symbolsTable.getColumnModel().getColumn(0).setPreferredWidth(200); // Symbol name
-        symbolsTable.getColumnModel().getColumn(1).setPreferredWidth(100); // Type
-        symbolsTable.getColumnModel().getColumn(2).setPreferredWidth(200); // New name
+        int newNameColumn = tableModel.getNewNameColumn();
+        if (multipleFiles) {
+            symbolsTable.getColumnModel().getColumn(0).setPreferredWidth(200); // File
+        }
+        symbolsTable.getColumnModel().getColumn(newNameColumn - 2).setPreferredWidth(200); // Symbol name
+        symbolsTable.getColumnModel().getColumn(newNameColumn - 1).setPreferredWidth(100); // Type
+        symbolsTable.getColumnModel().getColumn(newNameColumn).setPreferredWidth(200); // New name
         symbolsTable.setRowHeight(24);
         symbolsTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         // Custom editor for the new name column to handle enter key properly
-        symbolsTable.getColumnModel().getColumn(2).setCellEditor(new DefaultCellEditor(new JTextField()) {
+        symbolsTable.getColumnModel().getColumn(newNameColumn).setCellEditor(new DefaultCellEditor(new JTextField()) {
             @Override
             public boolean stopCellEditing() {
                 // Only accept non-empty values
@@ -180,8 +332,8 @@ public class RenameSymbolsDialog extends DialogWrapper {
                 }
 
                 if (row < symbolsTable.getRowCount() - 1) {
-                    symbolsTable.changeSelection(row + 1, 2, false, false); // 2 is the editable column
-                    symbolsTable.editCellAt(row + 1, 2);
+                    symbolsTable.changeSelection(row + 1, newNameColumn, false, false);
+                    symbolsTable.editCellAt(row + 1, newNameColumn);
                     Component editorComponent = symbolsTable.getEditorComponent();
                     if (editorComponent instanceof JTextField) {
                         ((JTextField) editorComponent).selectAll();
@@ -195,7 +347,7 @@ public class RenameSymbolsDialog extends DialogWrapper {
         symbolsTable.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
 
         JBScrollPane scrollPane = new JBScrollPane(symbolsTable);
-        scrollPane.setPreferredSize(new Dimension(600, 400));
+        scrollPane.setPreferredSize(new Dimension(multipleFiles ? 800 : 600, 400));
 
         // Create status label
         statusLabel = new JBLabel();
@@ -250,9 +402,30 @@ public class RenameSymbolsDialog extends DialogWrapper {
                 }
             }
         }
+
+        List<BatchConflictDetector.Conflict> conflicts = findConflicts();
+        if (!conflicts.isEmpty()) {
+            String more = conflicts.size() > 1 ? " (and " + (conflicts.size() - 1) + " more)" : "";
+            return new ValidationInfo(conflicts.get(0).getMessage() + more);
+        }
         return null;
     }
 
+    /**
+     * Checks the entered names for collisions with each other and with the names that stay
+     */
+    private List<BatchConflictDetector.Conflict> findConflicts() {
+        return ReadAction.compute(() -> {
+            BatchConflictDetector detector = new BatchConflictDetector();
+            for (SymbolRenameInfo symbol : symbols) {
+                if (symbol.hasNewName() && symbol.getElement().isValid()) {
+                    detector.add(symbol.getElement(), symbol.getNewName(), "'" + symbol.getOriginalName() + "'");
+                }
+            }
+            return detector.findConflicts();
+        });
+    }
+
     /**
      * Returns the list of symbols that have a new name specified
      */
@@ -266,6 +439,70 @@ public class RenameSymbolsDialog extends DialogWrapper {
         return result;
     }
 
+    /**
+     * Saves the entered renames as a batch rename config. Every operation carries the symbol's
+     * offset, so running the config skips the line lookup, and its original name, so a file
+     * that changed in the meantime is detected.
+     */
+    private void exportRenames() {
+        if (symbolsTable.isEditing()) {
+            symbolsTable.getCellEditor().stopCellEditing();
+        }
+        List<SymbolRenameInfo> renames = getSymbolsToRename();
+        if (renames.isEmpty()) {
+            statusLabel.setForeground(JBColor.RED);
+            statusLabel.setText("No new names to export");
+            return;
+        }
+
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Renames",
+            "Save the renames as a batch rename configuration", "json");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+            .createSaveFileDialog(descriptor, project)
+            .save("renames.json");
+        if (target == null) return;
+
+        List<RenameConfig.RenameOperation> operations = ReadAction.compute(() -> toOperations(renames));
+        StringWriter json = new StringWriter();
+        try {
+            RenameConfigWriter.write(new RenameConfig(null, operations), json);
+            // Through the VFS, so an open editor or the project view sees the new content right away
+            WriteAction.run(() -> {
+                VirtualFile file = target.getVirtualFile(true);
+                if (file == null) {
+                    throw new IOException("cannot create " + target.getFile());
+                }
+                VfsUtil.saveText(file, json.toString());
+            });
+        } catch (IOException ex) {
+            statusLabel.setForeground(JBColor.RED);
+            statusLabel.setText("Cannot export renames: " + ex.getMessage());
+            return;
+        }
+        statusLabel.setForeground(JBColor.GREEN);
+        statusLabel.setText(operations.size() + " rename(s) exported to " + target.getFile().getName());
+    }
+
+    /**
+     * Converts renames to config operations, with paths relative to the project directory
+     */
+    private List<RenameConfig.RenameOperation> toOperations(List<SymbolRenameInfo> renames) {
+        VirtualFile baseDir = ProjectUtil.guessProjectDir(project);
+        List<RenameConfig.RenameOperation> operations = new ArrayList<>(renames.size());
+        for (SymbolRenameInfo symbol : renames) {
+            VirtualFile file = symbol.getFile();
+            Document document = file != null ? FileDocumentManager.getInstance().getDocument(file) : null;
+            if (document == null || symbol.getOffset() > document.getTextLength()) continue;
+
+            String relative = baseDir != null ? VfsUtilCore.getRelativePath(file, baseDir) : null;
+            int line = document.getLineNumber(symbol.getOffset());
+            int column = symbol.getOffset() - document.getLineStartOffset(line);
+            operations.add(new RenameConfig.RenameOperation(relative != null ? relative : file.getPath(), line, column,
+                null, null, null, symbol.getOriginalName(), symbol.getNewName(), symbol.getOffset()));
+        }
+        return operations;
+    }
+
     /**
      * Copies the selected symbol to clipboard
      */
@@ -302,25 +539,57 @@ public class RenameSymbolsDialog extends DialogWrapper {
     }
 
     /**
-     * Filters the symbols based on search text
+     * Selects the symbols matching the search text. The index is queried on a pooled thread;
+     * a newer keystroke cancels a query that is still running.
      */
     private void filterSymbols() {
-        String searchText = searchField.getText().toLowerCase();
+        int generation = searchGeneration.incrementAndGet();
+        String searchText = searchField.getText();
         if (searchText.isEmpty()) {
-            for (int i = 0; i < symbolsTable.getRowCount(); i++) {
-                symbolsTable.getSelectionModel().removeSelectionInterval(i, i);
-            }
+            symbolsTable.getSelectionModel().clearSelection();
             return;
         }
 
-        for (int i = 0; i < symbols.size(); i++) {
-            String symbolName = symbols.get(i).getOriginalName().toLowerCase();
-            if (symbolName.contains(searchText)) {
-                symbolsTable.getSelectionModel().addSelectionInterval(i, i);
-                symbolsTable.scrollRectToVisible(symbolsTable.getCellRect(i, 0, true));
-            } else {
-                symbolsTable.getSelectionModel().removeSelectionInterval(i, i);
+        BooleanSupplier isCancelled = () -> searchGeneration.get() != generation;
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            int[] matches;
+            try {
+                matches = searchIndex.search(searchText, isCancelled);
+            } catch (CancellationException ignored) {
+                return;
+            }
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (!isCancelled.getAsBoolean()) {
+                    selectRows(matches);
+                }
+            }, ModalityState.any(), ignored -> isDisposed());
+        });
+    }
+
+    /**
+     * Replaces the selection with the given ascending rows as a single selection change
+     */
+    private void selectRows(int[] rows) {
+        ListSelectionModel selection = symbolsTable.getSelectionModel();
+        selection.setValueIsAdjusting(true);
+        try {
+            selection.clearSelection();
+            int i = 0;
+            while (i < rows.length) {
+                // Select runs of consecutive rows as one interval
+                int end = i;
+                while (end + 1 < rows.length && rows[end + 1] == rows[end] + 1) {
+                    end++;
+                }
+                selection.addSelectionInterval(rows[i], rows[end]);
+                i = end + 1;
             }
+        } finally {
+            selection.setValueIsAdjusting(false);
+        }
+
+        if (rows.length > 0) {
+            symbolsTable.scrollRectToVisible(symbolsTable.getCellRect(rows[0], 0, true));
         }
     }
 
@@ -328,49 +597,47 @@ public class RenameSymbolsDialog extends DialogWrapper {
      * Shows a dialog for bulk find/replace operations
      */
     private void showBulkReplaceDialog() {
-        JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
-        JTextField findField = new JTextField(20);
-        JTextField replaceField = new JTextField(20);
-        panel.add(new JLabel("Find pattern:"));
-        panel.add(findField);
-        panel.add(new JLabel("Replace with:"));
-        panel.add(replaceField);
-
-        int result = JOptionPane.showConfirmDialog(this.getRootPane(), panel, "Bulk Find/Replace", 
-                                             JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
-
-        if (result == JOptionPane.OK_OPTION) {
-            String findPattern = findField.getText();
-            String replaceWith = replaceField.getText();
-
-            if (findPattern.isEmpty()) return;
-
-            int count = 0;
-            for (int i = 0; i < symbols.size(); i++) {
-                SymbolRenameInfo symbol = symbols.get(i);
-                String originalName = symbol.getOriginalName();
-
-                if (originalName.contains(findPattern)) {
-                    String newName = originalName.replace(findPattern, replaceWith);
-                    symbol.setNewName(newName);
-                    count++;
-                }
-            }
+        String[] names = new String[symbols.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = symbols.get(i).getOriginalName();
+        }
+
+        BulkReplaceDialog dialog = new BulkReplaceDialog(project, names);
+        if (!dialog.showAndGet()) return;
 
-            tableModel.fireTableDataChanged();
-            statusLabel.setForeground(JBColor.GREEN);
-            statusLabel.setText(count + " symbol(s) updated with bulk replace");
+        // Evaluate the rule over the snapshot (in parallel for large files), then update the rows at once
+        String[] newNames = dialog.getRule().applyAll(names);
+        int count = 0;
+        for (int i = 0; i < newNames.length; i++) {
+            if (newNames[i] != null) {
+                symbols.get(i).setNewName(newNames[i]);
+                count++;
+            }
         }
+
+        tableModel.fireTableDataChanged();
+        statusLabel.setForeground(JBColor.GREEN);
+        statusLabel.setText(count + " symbol(s) updated with bulk replace");
     }
 
     private class SymbolTableModel extends AbstractTableModel {
         private final List<SymbolRenameInfo> symbols;
-        private final String[] columnNames = {"Symbol", "Type", "New Name"};
+        private final String[] columnNames = multipleFiles
+            ? new String[]{"File", "Symbol", "Type", "New Name"}
+            : new String[]{"Symbol", "Type", "New Name"};
+        private final Map<VirtualFile, String> filePaths = new HashMap<>();
 
         public SymbolTableModel(List<SymbolRenameInfo> symbols) {
             this.symbols = symbols;
         }
 
+        /**
+         * The only editable column; the columns before it are the same with or without a File column
+         */
+        int getNewNameColumn() {
+            return columnNames.length - 1;
+        }
+
         @Override
         public int getRowCount() {
             return symbols.size();
@@ -388,23 +655,41 @@ public class RenameSymbolsDialog extends DialogWrapper {
 
         @Override
         public boolean isCellEditable(int rowIndex, int columnIndex) {
-            return columnIndex == 2; // Only new name column is editable
+            return columnIndex == getNewNameColumn(); // Only new name column is editable
         }
 
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
             SymbolRenameInfo symbol = symbols.get(rowIndex);
-            return switch (columnIndex) {
+            if (multipleFiles && columnIndex == 0) {
+                return getFileLabel(rowIndex);
+            }
+            return switch (columnIndex - (getNewNameColumn() - 2)) {
                 case 0 -> symbol.getOriginalName();
-                case 1 -> getSymbolTypeName(symbol.getElement());
+                case 1 -> symbol.getTypeName();
                 case 2 -> symbol.getNewName();
                 default -> null;
             };
         }
 
+        /**
+         * The file's project-relative path on the first row of each file, blank on the rows after it
+         */
+        private String getFileLabel(int rowIndex) {
+            VirtualFile file = symbols.get(rowIndex).getFile();
+            if (file == null || rowIndex > 0 && file.equals(symbols.get(rowIndex - 1).getFile())) {
+                return "";
+            }
+            return filePaths.computeIfAbsent(file, key -> {
+                VirtualFile baseDir = ProjectUtil.guessProjectDir(project);
+                String relative = baseDir != null ? VfsUtilCore.getRelativePath(key, baseDir) : null;
+                return relative != null ? relative : key.getPresentableUrl();
+            });
+        }
+
         @Override
         public void setValueAt(Object value, int rowIndex, int columnIndex) {
-            if (columnIndex == 2) {
+            if (columnIndex == getNewNameColumn()) {
                 SymbolRenameInfo symbol = symbols.get(rowIndex);
                 symbol.setNewName((String) value);
                 fireTableCellUpdated(rowIndex, columnIndex);
@@ -417,21 +702,14 @@ public class RenameSymbolsDialog extends DialogWrapper {
         }
 
         /**
-         * Determines the symbol type name from the PsiElement
+         * Appends a batch of loaded symbols, notifying the table only about the new rows
          */
-        private String getSymbolTypeName(PsiNamedElement element) {
-            String className = element.getClass().getSimpleName();
-
-            if (className.contains("Class")) return "Class";
-            if (className.contains("Method")) return "Method";
-            if (className.contains("Field")) return "Field";
-            if (className.contains("Variable")) return "Variable";
-            if (className.contains("Parameter")) return "Parameter";
-            if (className.contains("Interface")) return "Interface";
-            if (className.contains("Enum")) return "Enum";
-            if (className.contains("Constant")) return "Constant";
-
-            return className;
+        void appendRows(List<SymbolRenameInfo> batch) {
+            if (batch.isEmpty()) return;
+            int firstRow = symbols.size();
+            symbols.addAll(batch);
+            searchIndex.addAll(batch);
+            fireTableRowsInserted(firstRow, symbols.size() - 1);
         }
     }
 }
@@ -0,0 +1,138 @@
+package solop.cc.ui;
+
+import solop.cc.ui.RenameSymbolsDialog.SymbolRenameInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Case-insensitive substring search over symbol names, backed by a trigram index.
+ * <p>
+ * Names are registered on the EDT as rows are added to the table, which only queues them
+ * without taking the index lock, so appending rows never waits for a running search. The
+ * next query takes the queued names over, lower-cases them and builds their trigram
+ * postings, so the indexing work happens on the search thread rather than the EDT.
+ * </p>
+ */
+class SymbolSearchIndex {
+  private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+  // Names registered since the last query, in row order; the only state shared with the EDT
+  private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+  private final List<String> names = new ArrayList<>();
+  private final Map<Long, Postings> trigrams = new HashMap<>();
+  private int indexedCount;
+
+  /**
+   * Registers the names of rows appended to the table, in row order
+   */
+  void addAll(List<SymbolRenameInfo> symbols) {
+    for (SymbolRenameInfo symbol : symbols) {
+      pending.add(symbol.getOriginalName());
+    }
+  }
+
+  /**
+   * Finds the rows whose name contains the query, ignoring case.
+   *
+   * @return matching row indices in ascending order
+   * @throws CancellationException if {@code isCancelled} turns true during the search
+   */
+  synchronized int[] search(String query, BooleanSupplier isCancelled) {
+    for (String name; (name = pending.poll()) != null; ) {
+      names.add(name.toLowerCase(Locale.ROOT));
+    }
+
+    String needle = query.toLowerCase(Locale.ROOT);
+    if (needle.length() < 3) {
+      return scan(needle, 0, names.size(), isCancelled);
+    }
+
+    indexPending(isCancelled);
+
+    // Candidates are the rows that contain every trigram of the query; start with the rarest
+    Postings smallest = null;
+    for (int i = 0; i + 3 <= needle.length(); i++) {
+      Postings postings = trigrams.get(trigram(needle, i));
+      if (postings == null) {
+        return new int[0];
+      }
+      if (smallest == null || postings.size < smallest.size) {
+        smallest = postings;
+      }
+    }
+
+    int[] matches = new int[smallest.size];
+    int count = 0;
+    for (int i = 0; i < smallest.size; i++) {
+      checkCancelled(i, isCancelled);
+      int row = smallest.rows[i];
+      if (names.get(row).contains(needle)) {
+        matches[count++] = row;
+      }
+    }
+    return Arrays.copyOf(matches, count);
+  }
+
+  private int[] scan(String needle, int from, int to, BooleanSupplier isCancelled) {
+    int[] matches = new int[to - from];
+    int count = 0;
+    for (int row = from; row < to; row++) {
+      checkCancelled(row, isCancelled);
+      if (names.get(row).contains(needle)) {
+        matches[count++] = row;
+      }
+    }
+    return Arrays.copyOf(matches, count);
+  }
+
+  private void indexPending(BooleanSupplier isCancelled) {
+    // Each name is indexed completely before indexedCount moves past it, so a cancelled
+    // query leaves the index consistent
+    while (indexedCount < names.size()) {
+      checkCancelled(indexedCount, isCancelled);
+      String name = names.get(indexedCount);
+      for (int i = 0; i + 3 <= name.length(); i++) {
+        trigrams.computeIfAbsent(trigram(name, i), key -> new Postings()).add(indexedCount);
+      }
+      indexedCount++;
+    }
+  }
+
+  private static long trigram(String text, int start) {
+    return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+  }
+
+  private static void checkCancelled(int step, BooleanSupplier isCancelled) {
+    if (step % CANCEL_CHECK_INTERVAL == 0 && isCancelled.getAsBoolean()) {
+      throw new CancellationException();
+    }
+  }
+
+  /**
+   * Ascending row indices of the names containing one trigram
+   */
+  private static final class Postings {
+    private int[] rows = new int[4];
+    private int size;
+
+    void add(int row) {
+      // A name that contains the trigram more than once is only listed once
+      if (size > 0 && rows[size - 1] == row) {
+        return;
+      }
+      if (size == rows.length) {
+        rows = Arrays.copyOf(rows, size * 2);
+      }
+      rows[size++] = row;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package solop.cc.batch;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiVariable;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+import java.util.List;
+
+public class BatchConflictDetectorTest extends LightJavaCodeInsightFixtureTestCase {
+  private static final String CODE = """
+      class A {
+        void run(int count, String[] names) {
+          int total = 0;
+          {
+            int inner = 1;
+          }
+          {
+            int sibling = 2;
+          }
+          for (int i = 0; i < count; i++) {
+            int step = i;
+          }
+          for (String name : names) {
+            total += name.length();
+          }
+          try {
+            total++;
+          } catch (RuntimeException failure) {
+            total--;
+          }
+          Runnable task = () -> {
+            int deep = 3;
+          };
+        }
+      }
+      """;
+
+  private PsiFile file;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    file = myFixture.configureByText("A.java", CODE);
+  }
+
+  public void testLocalClashesWithMethodParameter() {
+    assertConflicts(List.of("inner", "count"), "'count' clashes with the existing variable 'count'");
+  }
+
+  public void testLocalClashesWithLocalOfEnclosingBlock() {
+    assertConflicts(List.of("deep", "total"), "'total' clashes with the existing variable 'total'");
+  }
+
+  public void testLocalClashesWithForLoopVariable() {
+    assertConflicts(List.of("step", "i"), "'i' clashes with the existing variable 'i'");
+  }
+
+  public void testOuterLocalClashesWithNestedLocal() {
+    assertConflicts(List.of("total", "step"), "'step' clashes with the existing variable 'step'");
+  }
+
+  public void testCatchAndForEachParametersClash() {
+    assertConflicts(List.of("failure", "total"), "'total' clashes with the existing variable 'total'");
+    assertConflicts(List.of("name", "names"), "'names' clashes with the existing variable 'names'");
+  }
+
+  public void testSiblingBlocksDoNotClash() {
+    assertConflicts(List.of("inner", "sibling"));
+    assertConflicts(List.of("inner", "shared", "sibling", "shared"));
+  }
+
+  public void testRenamesIntoNestedScopesClash() {
+    assertConflicts(List.of("inner", "value", "total", "value"),
+        "'value' clashes with the rename at inner");
+    assertConflicts(List.of("total", "value", "inner", "value"),
+        "'value' clashes with the rename at total");
+  }
+
+  public void testSwappedNamesDoNotClash() {
+    assertConflicts(List.of("count", "total", "total", "count"));
+  }
+
+  /**
+   * @param renames Pairs of the variable to rename, by its name in {@link #CODE}, and its new name
+   */
+  private void assertConflicts(List<String> renames, String... expected) {
+    BatchConflictDetector detector = new BatchConflictDetector();
+    for (int i = 0; i < renames.size(); i += 2) {
+      detector.add(variable(renames.get(i)), renames.get(i + 1), renames.get(i));
+    }
+    List<String> reasons = detector.findConflicts().stream().map(BatchConflictDetector.Conflict::reason).toList();
+    assertEquals(List.of(expected), reasons);
+  }
+
+  private PsiVariable variable(String name) {
+    return PsiTreeUtil.findChildrenOfType(file, PsiVariable.class).stream()
+        .filter(variable -> name.equals(variable.getName()))
+        .findFirst()
+        .orElseThrow();
+  }
+}
@@ -0,0 +1,154 @@
+package solop.cc.batch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchRenameJournalTest {
+  private static final String A = "file:///src/A.java";
+  private static final String B = "file:///src/B.java";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void emptyWithoutEarlierRun() throws IOException {
+    BatchRenameJournal journal = BatchRenameJournal.open(journalFile());
+    assertEquals(0, journal.getCommittedOperations());
+    assertTrue(journal.getEdits().isEmpty());
+  }
+
+  @Test
+  public void restoresCommittedChunks() throws IOException {
+    Path file = journalFile();
+    try (BatchRenameJournal journal = BatchRenameJournal.open(file)) {
+      journal.commit(2, edits(A, 6, 1, 5, 0, 20, 3, 3, 0));
+      journal.commit(5, edits(B, 0, 4, 2, 1));
+      journal.commit(7, edits(A, 40, 3, 6, 0));
+    }
+
+    BatchRenameJournal restored = BatchRenameJournal.open(file);
+    assertEquals(7, restored.getCommittedOperations());
+    assertEquals(List.of(A, B), List.copyOf(restored.getEdits().keySet()));
+    assertEquals("[[6, 1, 5, 0], [20, 3, 3, 0], [40, 3, 6, 0]]", toString(restored.getEdits().get(A)));
+    assertEquals("[[0, 4, 2, 1]]", toString(restored.getEdits().get(B)));
+  }
+
+  @Test
+  public void ignoresCountCutShort() throws IOException {
+    Path file = journalFile();
+    try (BatchRenameJournal journal = BatchRenameJournal.open(file)) {
+      journal.commit(2, edits(A, 6, 1, 5, 0));
+      journal.commit(12000, edits(B, 0, 4, 2, 0));
+    }
+    // "C 12000" cut to "C 120", still a number but no longer its checksum's
+    truncate(file, Files.size(file) - 3);
+
+    BatchRenameJournal restored = BatchRenameJournal.open(file);
+    assertEquals(2, restored.getCommittedOperations());
+    assertFalse(restored.getEdits().containsKey(B));
+  }
+
+  @Test
+  public void ignoresLineWithoutNewline() throws IOException {
+    Path file = journalFile();
+    try (BatchRenameJournal journal = BatchRenameJournal.open(file)) {
+      journal.commit(2, edits(A, 6, 1, 5, 0));
+      journal.commit(4, edits(A, 20, 3, 3, 0));
+    }
+    truncate(file, Files.size(file) - 1);
+
+    BatchRenameJournal restored = BatchRenameJournal.open(file);
+    assertEquals(2, restored.getCommittedOperations());
+    assertEquals("[[6, 1, 5, 0]]", toString(restored.getEdits().get(A)));
+  }
+
+  @Test
+  public void commitAfterCrashDropsTornTail() throws IOException {
+    Path file = journalFile();
+    try (BatchRenameJournal journal = BatchRenameJournal.open(file)) {
+      journal.commit(2, edits(A, 6, 1, 5, 0));
+      journal.commit(4, edits(B, 0, 4, 2, 0));
+    }
+    long committed = Files.size(file);
+    truncate(file, committed - 5);
+
+    try (BatchRenameJournal resumed = BatchRenameJournal.open(file)) {
+      assertEquals(2, resumed.getCommittedOperations());
+      resumed.commit(6, edits(B, 8, 4, 2, 0));
+    }
+
+    BatchRenameJournal restored = BatchRenameJournal.open(file);
+    assertEquals(6, restored.getCommittedOperations());
+    assertEquals("[[8, 4, 2, 0]]", toString(restored.getEdits().get(B)));
+  }
+
+  @Test
+  public void resetForgetsCheckpoint() throws IOException {
+    Path file = journalFile();
+    try (BatchRenameJournal journal = BatchRenameJournal.open(file)) {
+      journal.commit(2, edits(A, 6, 1, 5, 0));
+      journal.reset();
+      assertFalse(Files.exists(file));
+      journal.commit(1, edits(B, 0, 4, 2, 0));
+    }
+
+    BatchRenameJournal restored = BatchRenameJournal.open(file);
+    assertEquals(1, restored.getCommittedOperations());
+    assertEquals(List.of(B), List.copyOf(restored.getEdits().keySet()));
+  }
+
+  @Test
+  public void readsEditsWithoutLineBreaks() throws IOException {
+    Path file = journalFile();
+    // As written before line breaks were journaled
+    Files.writeString(file, line("E " + A + "\t6,1,5;20,3,3") + line("C 2"));
+
+    BatchRenameJournal restored = BatchRenameJournal.open(file);
+    assertEquals(2, restored.getCommittedOperations());
+    assertEquals("[[6, 1, 5, 0], [20, 3, 3, 0]]", toString(restored.getEdits().get(A)));
+  }
+
+  private Path journalFile() {
+    return folder.getRoot().toPath().resolve("run.journal");
+  }
+
+  private static Map<String, int[]> edits(String url, int... quadruplets) {
+    Map<String, int[]> edits = new LinkedHashMap<>();
+    edits.put(url, quadruplets);
+    return edits;
+  }
+
+  private static String line(String record) {
+    CRC32 crc = new CRC32();
+    crc.update(record.getBytes(StandardCharsets.UTF_8));
+    return HexFormat.of().toHexDigits((int) crc.getValue()) + " " + record + "\n";
+  }
+
+  private static void truncate(Path file, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(size);
+    }
+  }
+
+  private static String toString(List<int[]> edits) {
+    return Arrays.deepToString(edits.toArray());
+  }
+}
@@ -0,0 +1,135 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+public class CombinedRenameTest extends LightJavaCodeInsightFixtureTestCase {
+  public void testRenamesEverySymbolWithItsUsages() {
+    PsiJavaFile file = (PsiJavaFile) myFixture.configureByText("A.java", """
+        class A {
+          int count;
+          void reset() {
+            count = 0;
+          }
+          void run() {
+            reset();
+            count++;
+          }
+        }
+        """);
+    PsiClass psiClass = file.getClasses()[0];
+
+    CombinedRename rename = new CombinedRename(getProject());
+    rename.add(psiClass.findFieldByName("count", false), "total");
+    rename.add(psiClass.findMethodsByName("reset", false)[0], "clear");
+    CombinedRename.Usages usages = rename.findUsages();
+    assertEquals(3, usages.size());
+
+    String[][] errors = new String[1][];
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> errors[0] = rename.run(usages));
+
+    assertEquals(2, errors[0].length);
+    assertNull(errors[0][0]);
+    assertNull(errors[0][1]);
+    myFixture.checkResult("""
+        class A {
+          int total;
+          void clear() {
+            total = 0;
+          }
+          void run() {
+            clear();
+            total++;
+          }
+        }
+        """);
+    assertTrue(rename.getTouchedFiles().contains(file.getVirtualFile()));
+  }
+
+  public void testRenamesOverridingMethods() {
+    PsiJavaFile file = (PsiJavaFile) myFixture.configureByText("A.java", """
+        interface Resettable {
+          void reset();
+        }
+        class A implements Resettable {
+          int count;
+          public void reset() {
+            count = 0;
+          }
+          void run(Resettable other) {
+            reset();
+            other.reset();
+          }
+        }
+        """);
+    PsiClass resettable = file.getClasses()[0];
+    PsiClass psiClass = file.getClasses()[1];
+
+    CombinedRename rename = new CombinedRename(getProject());
+    rename.add(resettable.findMethodsByName("reset", false)[0], "clear");
+    rename.add(psiClass.findFieldByName("count", false), "total");
+    CombinedRename.Usages usages = rename.findUsages();
+
+    String[][] errors = new String[1][];
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> errors[0] = rename.run(usages));
+
+    assertNull(errors[0][0]);
+    assertNull(errors[0][1]);
+    myFixture.checkResult("""
+        interface Resettable {
+          void clear();
+        }
+        class A implements Resettable {
+          int total;
+          public void clear() {
+            total = 0;
+          }
+          void run(Resettable other) {
+            clear();
+            other.clear();
+          }
+        }
+        """);
+  }
+
+  public void testSkipsRenameWithConflicts() {
+    PsiJavaFile file = (PsiJavaFile) myFixture.configureByText("A.java", """
+        class A {
+          int count;
+          void reset() {
+            count = 0;
+          }
+          void clear() {
+            reset();
+          }
+        }
+        """);
+    PsiClass psiClass = file.getClasses()[0];
+
+    CombinedRename rename = new CombinedRename(getProject());
+    rename.add(psiClass.findMethodsByName("reset", false)[0], "clear");
+    rename.add(psiClass.findFieldByName("count", false), "total");
+    CombinedRename.Usages usages = rename.findUsages();
+    assertFalse(usages.getConflicts(0).isEmpty());
+    assertTrue(usages.getConflicts(1).isEmpty());
+
+    String[][] errors = new String[1][];
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> errors[0] = rename.run(usages));
+
+    assertNotNull(errors[0][0]);
+    assertNull(errors[0][1]);
+    myFixture.checkResult("""
+        class A {
+          int total;
+          void reset() {
+            total = 0;
+          }
+          void clear() {
+            reset();
+          }
+        }
+        """);
+  }
+}
@@ -0,0 +1,103 @@
+package solop.cc.batch;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class DocumentEditLogTest extends BasePlatformTestCase {
+  private static final String TEXT = "class A {\n  int foo;\n}\n";
+
+  private final DocumentEditLog log = new DocumentEditLog();
+  private Document document;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    document = EditorFactory.getInstance().createDocument(TEXT);
+    document.addDocumentListener(log, getTestRootDisposable());
+  }
+
+  public void testOffsetWithoutEdits() {
+    assertEquals("foo", textAt(log.offsetOf(document, 1, 6)));
+  }
+
+  public void testOffsetShiftedByEarlierEdit() {
+    replace(6, 7, "Alpha");
+    assertEquals("foo", textAt(log.offsetOf(document, 1, 6)));
+    assertEquals("foo", textAt(log.offsetOf(document, TEXT.indexOf("foo"))));
+  }
+
+  public void testOffsetInsideReplacedRange() {
+    replace(6, 7, "Alpha");
+    assertEquals(6, log.offsetOf(document, 0, 6));
+  }
+
+  public void testLinePastEnd() {
+    assertEquals(DocumentEditLog.LINE_PAST_END, log.offsetOf(document, 10, 0));
+    replace(6, 7, "Alpha");
+    assertEquals(DocumentEditLog.LINE_PAST_END, log.offsetOf(document, 10, 0));
+  }
+
+  public void testColumnPastEndOfLine() {
+    // "  int foo;" has 10 characters; column 10 would be the next line's first
+    assertEquals(DocumentEditLog.COLUMN_PAST_END, log.offsetOf(document, 1, 10));
+    replace(6, 7, "Alpha");
+    assertEquals(DocumentEditLog.COLUMN_PAST_END, log.offsetOf(document, 1, 10));
+    assertEquals(DocumentEditLog.COLUMN_PAST_END, log.offsetOf(document, 0, 9));
+  }
+
+  public void testOffsetPastEnd() {
+    assertEquals(-1, log.offsetOf(document, TEXT.length() + 1));
+  }
+
+  public void testRestoreFromJournaledEdits() {
+    replace(6, 7, "Alpha");
+    int[] edits = log.takeNewEdits().get(document);
+    assertEquals("[6, 1, 5, 0]", Arrays.toString(edits));
+
+    // The journal keeps one {offset, old length, new length, line breaks} entry per edit
+    DocumentEditLog restored = new DocumentEditLog();
+    restored.restore(document, List.of(edits));
+    assertEquals("foo", textAt(restored.offsetOf(document, 1, 6)));
+    assertEquals(DocumentEditLog.COLUMN_PAST_END, restored.offsetOf(document, 1, 10));
+  }
+
+  public void testOffsetsAfterManyEdits() {
+    replace(6, 7, "Alpha");
+    replace(2, 4, "");
+    // Replaces "foo" and the "int " before it
+    replace(14, 21, "bar");
+    replace(0, 0, "final ");
+    assertEquals("final cls Alpha {\n  bar;\n}\n", document.getText());
+
+    assertEquals(6, log.offsetOf(document, 0));
+    assertEquals(10, log.offsetOf(document, 0, 6));
+    assertEquals(20, log.offsetOf(document, 1, 2));
+    // Everything inside the replaced range maps to its start
+    assertEquals(20, log.offsetOf(document, 1, 6));
+    assertEquals(23, log.offsetOf(document, 1, 9));
+    assertEquals(DocumentEditLog.COLUMN_PAST_END, log.offsetOf(document, 1, 10));
+  }
+
+  public void testLineBreaksAreJournaled() {
+    replace(9, 10, " ");
+    replace(0, 0, "\n");
+    int[] edits = log.takeNewEdits().get(document);
+    assertEquals("[9, 1, 1, 1, 0, 0, 1, 1]", Arrays.toString(edits));
+    assertFalse(DocumentEditLog.canRestore(List.of(new int[]{9, 1, 1, 1})));
+    assertTrue(DocumentEditLog.canRestore(List.of(new int[]{6, 1, 5, 0}, new int[]{6, 1, 5})));
+  }
+
+  private void replace(int start, int end, String text) {
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> document.replaceString(start, end, text));
+  }
+
+  private String textAt(int offset) {
+    return document.getText(TextRange.from(offset, 3));
+  }
+}
@@ -0,0 +1,65 @@
+package solop.cc.model;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalConfigValidatorTest {
+  private static final String VALID = """
+      {"operations": [
+        {"filePath": "A.java", "line": 1, "column": 2, "newName": "a"},
+        {"filePath": "B.java", "line": 3, "column": 4, "newName": "b"}
+      ]}""";
+
+  private final IncrementalConfigValidator validator = new IncrementalConfigValidator();
+
+  @Test
+  public void acceptsValidConfig() {
+    assertNull(validator.validate(VALID, () -> false));
+  }
+
+  @Test
+  public void revalidatesEditedOperation() {
+    assertNull(validator.validate(VALID, () -> false));
+
+    String broken = VALID.replace("\"newName\": \"b\"", "\"newName\": \"\"");
+    assertEquals("Operation #2: newName is required", validator.validate(broken, () -> false));
+
+    assertNull(validator.validate(VALID, () -> false));
+  }
+
+  @Test
+  public void keepsResultsOfUnchangedOperations() {
+    String broken = VALID.replace("\"line\": 1", "\"line\": -1");
+    assertEquals("Operation #1: line must be non-negative", validator.validate(broken, () -> false));
+
+    // Only the second operation is edited; the first one's problem is kept
+    String edited = broken.replace("\"newName\": \"b\"", "\"newName\": \"bee\"");
+    assertEquals("Operation #1: line must be non-negative", validator.validate(edited, () -> false));
+  }
+
+  @Test
+  public void reportsSyntaxErrorsLikeTheReader() {
+    String broken = VALID.substring(0, VALID.length() - 3);
+    String problem = validator.validate(broken, () -> false);
+    assertTrue(problem, problem.startsWith("JSON syntax error"));
+  }
+
+  @Test
+  public void rejectsConfigWithoutOperations() {
+    assertEquals("No rename operations found in configuration",
+        validator.validate("{\"operations\": []}", () -> false));
+  }
+
+  @Test
+  public void stopsWhenCancelled() {
+    assertThrows(CancellationException.class, () -> validator.validate(VALID, () -> true));
+    // The cancelled run left no state behind
+    assertNull(validator.validate(VALID, () -> false));
+  }
+}
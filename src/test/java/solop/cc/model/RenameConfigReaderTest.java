@@ -0,0 +1,131 @@
+package solop.cc.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class RenameConfigReaderTest {
+  private static final String CONFIG = """
+      {
+        "basePath": "src",
+        "chunkSize": 2,
+        "operations": [
+          {"filePath": "A.java", "line": 1, "column": 2, "newName": "a"},
+          {"symbol": "com.example.B", "kind": "class", "newName": "Bee"},
+          {"namePattern": "old(.*)", "newName": "new$1"},
+          {"filePath": "C.java", "line": 3, "column": 4, "oldName": "c", "newName": "see", "offset": 17}
+        ]
+      }""";
+
+  @Test
+  public void readsWholeConfig() throws IOException {
+    RenameConfig config = RenameConfigReader.readConfig(new StringReader(CONFIG));
+
+    assertEquals("src", config.getBasePath());
+    assertEquals(2, config.getChunkSize());
+    List<RenameConfig.RenameOperation> operations = config.getOperations();
+    assertEquals(4, operations.size());
+    RenameOperationStoreTest.assertOperation(
+        new RenameConfig.RenameOperation("A.java", 1, 2, "a"), operations.get(0));
+    RenameOperationStoreTest.assertOperation(
+        new RenameConfig.RenameOperation(null, 0, 0, "com.example.B", null, "class", null, "Bee"), operations.get(1));
+    RenameOperationStoreTest.assertOperation(
+        new RenameConfig.RenameOperation(null, 0, 0, null, "old(.*)", null, null, "new$1"), operations.get(2));
+    RenameOperationStoreTest.assertOperation(
+        new RenameConfig.RenameOperation("C.java", 3, 4, null, null, null, "c", "see", 17), operations.get(3));
+  }
+
+  @Test
+  public void streamsOperationsInChunks() throws IOException {
+    List<Integer> chunkSizes = new ArrayList<>();
+    RenameConfigReader.Summary summary = RenameConfigReader.read(new StringReader(CONFIG), 3,
+        chunk -> chunkSizes.add(chunk.size()));
+
+    assertEquals(List.of(3, 1), chunkSizes);
+    assertEquals(4, summary.getOperationCount());
+    assertEquals(2, summary.getChunkSize());
+  }
+
+  @Test
+  public void reportsTheInvalidOperation() {
+    String config = """
+        {"operations": [
+          {"filePath": "A.java", "line": 1, "column": 2, "newName": "a"},
+          {"filePath": "A.java", "line": 1, "column": 2}
+        ]}""";
+
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> RenameConfigReader.scan(new StringReader(config)));
+    assertEquals("Operation #2: newName is required", ex.getMessage());
+  }
+
+  @Test
+  public void checksOperations() {
+    assertNull(RenameConfigReader.check(new RenameConfig.RenameOperation("A.java", 0, 0, "a")));
+    assertEquals("filePath, symbol or namePattern is required",
+        RenameConfigReader.check(new RenameConfig.RenameOperation(null, 0, 0, "a")));
+    assertEquals("only one of filePath, symbol or namePattern may be given", RenameConfigReader.check(
+        new RenameConfig.RenameOperation("A.java", 0, 0, "com.example.A", null, null, null, "a")));
+    assertEquals("line must be non-negative",
+        RenameConfigReader.check(new RenameConfig.RenameOperation("A.java", -1, 0, "a")));
+    assertEquals("offset must be non-negative", RenameConfigReader.check(
+        new RenameConfig.RenameOperation("A.java", 0, 0, null, null, null, null, "a", -5)));
+    assertEquals("offset can only be given with filePath", RenameConfigReader.check(
+        new RenameConfig.RenameOperation(null, 0, 0, "com.example.A", null, null, null, "a", 5)));
+    assertTrue(RenameConfigReader.check(
+        new RenameConfig.RenameOperation(null, 0, 0, "com.example.A", null, "package", null, "a"))
+        .startsWith("kind must be one of"));
+    assertTrue(RenameConfigReader.check(
+        new RenameConfig.RenameOperation(null, 0, 0, null, "old(", null, null, "a"))
+        .startsWith("namePattern is not a valid regular expression"));
+  }
+
+  @Test
+  public void rejectsSyntaxErrors() {
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> RenameConfigReader.scan(new StringReader("{\"operations\": [{\"filePath\": }")));
+    assertTrue(ex.getMessage().startsWith("JSON syntax error"));
+  }
+
+  @Test
+  public void rejectsConfigWithoutOperations() {
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> RenameConfigReader.scan(new StringReader("{\"operations\": []}")));
+    assertEquals("No rename operations found in configuration", ex.getMessage());
+  }
+
+  @Test
+  public void blankSymbolDoesNotHideNamePattern() throws IOException {
+    RenameConfig config = RenameConfigReader.readConfig(new StringReader(
+        "{\"operations\": [{\"symbol\": \"\", \"namePattern\": \"Foo.*\", \"newName\": \"Bar\"}]}"));
+
+    RenameConfig.RenameOperation op = config.getOperations().get(0);
+    assertTrue(op.isIndexLookup());
+    assertNull(op.getSymbol());
+    assertEquals("Foo.*", op.getNamePattern());
+    assertNull(RenameConfigReader.check(op));
+  }
+
+  @Test
+  public void writerOutputReadsBack() throws IOException {
+    RenameConfig config = RenameConfigReader.readConfig(new StringReader(CONFIG));
+    StringWriter out = new StringWriter();
+    RenameConfigWriter.write(config, out);
+
+    RenameConfig reread = RenameConfigReader.readConfig(new StringReader(out.toString()));
+    assertEquals(config.getBasePath(), reread.getBasePath());
+    assertEquals(config.getChunkSize(), reread.getChunkSize());
+    for (int i = 0; i < config.getOperations().size(); i++) {
+      RenameOperationStoreTest.assertOperation(config.getOperations().get(i), reread.getOperations().get(i));
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package solop.cc.model;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RenameOperationStoreTest {
+  static void assertOperation(RenameConfig.RenameOperation expected, RenameConfig.RenameOperation actual) {
+    assertEquals(expected.getFilePath(), actual.getFilePath());
+    assertEquals(expected.getLine(), actual.getLine());
+    assertEquals(expected.getColumn(), actual.getColumn());
+    assertEquals(expected.getSymbol(), actual.getSymbol());
+    assertEquals(expected.getNamePattern(), actual.getNamePattern());
+    assertEquals(expected.getKind(), actual.getKind());
+    assertEquals(expected.getOldName(), actual.getOldName());
+    assertEquals(expected.getNewName(), actual.getNewName());
+    assertEquals(expected.getOffset(), actual.getOffset());
+  }
+
+  @Test
+  public void roundTripsEveryKindOfOperation() {
+    List<RenameConfig.RenameOperation> operations = List.of(
+        new RenameConfig.RenameOperation("src/A.java", 3, 17, "renamed"),
+        new RenameConfig.RenameOperation(null, 0, 0, "com.example.A#foo", null, "method", null, "bar"),
+        new RenameConfig.RenameOperation(null, 0, 0, null, "old(.*)", null, null, "new$1"),
+        new RenameConfig.RenameOperation("src/A.java", 5, 8, null, null, null, "value", "count"),
+        new RenameConfig.RenameOperation("src/B.java", 1, 2, null, null, null, "B", "Bee", 42));
+
+    RenameOperationStore store = new RenameOperationStore();
+    store.addAll(operations);
+
+    assertEquals(operations.size(), store.size());
+    List<RenameConfig.RenameOperation> list = store.asList();
+    for (int i = 0; i < operations.size(); i++) {
+      assertOperation(operations.get(i), list.get(i));
+    }
+  }
+
+  @Test
+  public void optionalColumnsAreAbsentBeforeTheirFirstUse() {
+    RenameOperationStore store = new RenameOperationStore();
+    store.add("src/A.java", 1, 2, "first");
+    store.add("src/A.java", 3, 4, null, null, null, "old", "second", 7);
+
+    assertNull(store.getOldName(0));
+    assertEquals(-1, store.getOffset(0));
+    assertNull(store.getSymbol(0));
+    assertEquals("old", store.getOldName(1));
+    assertEquals(7, store.getOffset(1));
+  }
+
+  @Test
+  public void growsPastInitialCapacity() {
+    RenameOperationStore store = new RenameOperationStore();
+    for (int i = 0; i < 1000; i++) {
+      store.add("src/File" + (i % 10) + ".java", i, i % 80, null, null, null, i % 2 == 0 ? "old" + i : null,
+          "name" + i, i % 3 == 0 ? i : -1);
+    }
+
+    assertEquals(1000, store.size());
+    assertEquals(10, store.getFileCount());
+    assertEquals("src/File9.java", store.getFilePath(999));
+    assertEquals("old998", store.getOldName(998));
+    assertNull(store.getOldName(999));
+    assertEquals(999, store.getOffset(999));
+    assertEquals(-1, store.getOffset(998));
+  }
+
+  @Test
+  public void chunksShareFilePaths() {
+    RenameOperationStore first = new RenameOperationStore();
+    first.add(new String("src/A.java"), 1, 2, "a");
+    RenameOperationStore second = first.nextChunk();
+    second.add(new String("src/A.java"), 3, 4, "b");
+
+    assertEquals(1, second.size());
+    assertSame(first.getFilePath(0), second.getFilePath(0));
+    assertEquals(first.getFilePathId(0), second.getFilePathId(0));
+  }
+
+  @Test
+  public void blankSelectorsCountAsAbsent() {
+    RenameOperationStore store = new RenameOperationStore();
+    store.add(null, 0, 0, "", "Foo.*", null, null, "Bar$0");
+    store.add(null, 0, 0, "com.example.Foo", " ", null, null, "Bar");
+
+    assertNull(store.getSymbol(0));
+    assertEquals("Foo.*", store.getNamePattern(0));
+    assertTrue(store.get(0).isIndexLookup());
+    assertEquals("com.example.Foo", store.getSymbol(1));
+    assertNull(store.getNamePattern(1));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void rejectsIndexPastSize() {
+    RenameOperationStore store = new RenameOperationStore();
+    store.add("src/A.java", 1, 2, "a");
+    store.get(1);
+  }
+}